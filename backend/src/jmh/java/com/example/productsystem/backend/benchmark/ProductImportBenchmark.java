@@ -0,0 +1,108 @@
+package com.example.productsystem.backend.benchmark;
+
+import com.example.productsystem.backend.TestData;
+import com.example.productsystem.backend.TestPersistence;
+import com.example.productsystem.backend.entity.Organization;
+import com.example.productsystem.backend.entity.Product;
+import com.example.productsystem.backend.repository.CoordinatesRepository;
+import com.example.productsystem.backend.repository.OrganizationRepository;
+import com.example.productsystem.backend.repository.PersonRepository;
+import com.example.productsystem.backend.repository.ProductRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/*
+ * Пропускная способность записи продуктов (строк в секунду): путь POST /products против пакета POST /products/bulk.
+ * singleRow - транзакция и поиск владельца, производителя и координат на каждую строку;
+ * bulk - одна транзакция на пакет, связанные сущности ищутся одним запросом на пакет, INSERT идут JDBC-батчами.
+ * Запуск: ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductImportBenchmark {
+
+    private static final int ROWS = 500;
+
+    private TestPersistence db;
+    private ProductRepository products;
+    private PersonRepository persons;
+    private OrganizationRepository organizations;
+    private CoordinatesRepository coordinates;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void open() {
+        db = TestPersistence.withoutSecondLevelCache();
+        products = db.repository(ProductRepository.class);
+        persons = db.repository(PersonRepository.class);
+        organizations = db.repository(OrganizationRepository.class);
+        coordinates = db.repository(CoordinatesRepository.class);
+    }
+
+    @TearDown(Level.Iteration)
+    public void close() {
+        db.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void singleRow() {
+        for (Product p : nextProducts()) {
+            db.inTransaction(() -> {
+                persons.findByPassportID(p.getOwner().getPassportID()).ifPresent(p::setOwner);
+                organizations.findByNormalizedName(Organization.normalizeName(p.getManufacturer().getName()))
+                        .ifPresent(p::setManufacturer);
+                coordinates.findByCoordinates(p.getCoordinates().getX(), p.getCoordinates().getY())
+                        .stream().findFirst().ifPresent(p::setCoordinates);
+                products.create(p);
+            });
+            db.em().clear();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void bulk() {
+        List<Product> chunk = nextProducts();
+        db.inTransaction(() -> {
+            products.findExistingPartNumbers(chunk.stream().map(Product::getPartNumber).collect(Collectors.toSet()));
+            persons.findByPassportIDs(chunk.stream().map(p -> p.getOwner().getPassportID()).collect(Collectors.toSet()));
+            organizations.findByNormalizedNames(chunk.stream()
+                    .map(p -> Organization.normalizeName(p.getManufacturer().getName())).collect(Collectors.toSet()));
+            coordinates.findByXInAndYIn(chunk.stream().map(p -> p.getCoordinates().getX()).collect(Collectors.toSet()),
+                    chunk.stream().map(p -> p.getCoordinates().getY()).collect(Collectors.toSet()));
+            chunk.forEach(products::create);
+            products.flush();
+        });
+        db.em().clear();
+    }
+
+    private List<Product> nextProducts() {
+        List<Product> chunk = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            int n = ++next;
+            chunk.add(TestData.product(n, TestData.organization(n), TestData.person(n)));
+        }
+        return chunk;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.productsystem.backend.benchmark;
+
+import com.example.productsystem.backend.TestData;
+import com.example.productsystem.backend.TestPersistence;
+import com.example.productsystem.backend.repository.OrganizationRepository;
+import com.example.productsystem.backend.repository.PersonRepository;
+import com.example.productsystem.common.OrganizationType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Чтение справочных данных с вторым уровнем кэша и без него (чтений в секунду).
+ * Каждое чтение - своя транзакция на пустом persistence context, как запрос к серверу:
+ * с кэшем организации и адреса, результаты findByType и findByPassportID берутся из регионов Caffeine,
+ * без кэша каждое чтение - запрос к H2.
+ * Запуск: ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SecondLevelCacheBenchmark {
+
+    private static final int ROWS = 200;
+
+    @Param({"true", "false"})
+    public boolean secondLevelCache;
+
+    private TestPersistence db;
+    private OrganizationRepository organizations;
+    private PersonRepository persons;
+    private final List<Integer> ids = new ArrayList<>();
+
+    @Setup
+    public void open() {
+        db = secondLevelCache ? TestPersistence.open() : TestPersistence.withoutSecondLevelCache();
+        organizations = db.repository(OrganizationRepository.class);
+        persons = db.repository(PersonRepository.class);
+        db.inTransaction(() -> {
+            for (int i = 1; i <= ROWS; i++) {
+                ids.add(organizations.create(TestData.organization(i)).getId());
+                persons.create(TestData.person(i));
+            }
+        });
+        db.em().clear();
+    }
+
+    @TearDown
+    public void close() {
+        db.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void findOrganization(Blackhole bh) {
+        for (Integer id : ids) {
+            db.inTransaction(() -> bh.consume(organizations.find(id).getPostalAddress().getTown()));
+            db.em().clear();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void findByPassportID(Blackhole bh) {
+        for (int i = 1; i <= ROWS; i++) {
+            String passportID = "passport-" + i;
+            db.inTransaction(() -> bh.consume(persons.findByPassportID(passportID)));
+            db.em().clear();
+        }
+    }
+
+    @Benchmark
+    public void findByType(Blackhole bh) {
+        db.inTransaction(() -> bh.consume(organizations.findByType(OrganizationType.GOVERNMENT)));
+        db.em().clear();
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.productsystem.backend.cache;
+
+import com.example.productsystem.backend.TestData;
+import com.example.productsystem.backend.TestPersistence;
+import com.example.productsystem.backend.entity.Person;
+import com.example.productsystem.backend.repository.PersonRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Стоимость поиска id человека по passportID в зависимости от числа людей в таблице (нс на поиск).
+ * lookupCache - карта passportID -> id в RelatedEntityCache: хеш-таблица, время не зависит от размера;
+ * uniqueIndex - запрос findByPassportID по ux_persons_passport_id без кэша запросов, B-дерево H2.
+ * Ключи выбираются случайно, чтобы кэш процессора не держал одну и ту же запись.
+ * Запуск: ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PassportLookupBenchmark {
+
+    private static final int CHUNK = 1000;
+
+    @Param({"1000", "10000", "100000"})
+    public int persons;
+
+    private TestPersistence db;
+    private PersonRepository repo;
+    private final LookupCache<String, Long> cache = new LookupCache<>(100_000, TimeUnit.HOURS.toNanos(1));
+
+    @Setup
+    public void open() {
+        db = TestPersistence.withoutSecondLevelCache();
+        repo = db.repository(PersonRepository.class);
+        for (int from = 1; from <= persons; from += CHUNK) {
+            int to = Math.min(persons, from + CHUNK - 1);
+            int first = from;
+            db.inTransaction(() -> {
+                for (int i = first; i <= to; i++) {
+                    cache.put("passport-" + i, repo.create(TestData.person(i)).getId());
+                }
+            });
+            db.em().clear();
+        }
+    }
+
+    @TearDown
+    public void close() {
+        db.close();
+    }
+
+    @Benchmark
+    public Long lookupCache() {
+        return cache.get(randomPassport());
+    }
+
+    @Benchmark
+    public Optional<Long> uniqueIndex() {
+        Optional<Long> id = db.fromTransaction(() -> repo.findByPassportID(randomPassport()).map(Person::getId));
+        db.em().clear();
+        return id;
+    }
+
+    private String randomPassport() {
+        return "passport-" + (ThreadLocalRandom.current().nextInt(persons) + 1);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.productsystem.backend.cache;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Ограниченный кэш ключ -> id сущности с вытеснением LRU по размеру и по времени жизни записи.
+ * Хранятся только id: сущности привязаны к EntityManager транзакции и между транзакциями не переиспользуются.
+ * Обратная карта id -> ключи поддерживается при каждом добавлении и удалении записи,
+ * поэтому сброс по id после изменения сущности не просматривает весь кэш.
+ */
+class LookupCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<K, Entry<V>> entries;
+    private final Map<V, Set<K>> keysById = new HashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    LookupCache(int maxSize, long ttlNanos) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlNanos;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() <= LookupCache.this.maxSize) return false;
+                unlink(eldest.getKey(), eldest.getValue().id);
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    synchronized V get(K key) {
+        Entry<V> e = entries.get(key);
+        if (e == null) {
+            misses.increment();
+            return null;
+        }
+        if (System.nanoTime() - e.createdAt > ttlNanos) {
+            entries.remove(key);
+            unlink(key, e.id);
+            evictions.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return e.id;
+    }
+
+    synchronized void put(K key, V id) {
+        Entry<V> old = entries.put(key, new Entry<>(id, System.nanoTime()));
+        if (old != null) unlink(key, old.id);
+        keysById.computeIfAbsent(id, k -> new HashSet<>(2)).add(key);
+    }
+
+    /* Запись оказалась устаревшей при проверке найденной сущности */
+    synchronized void removeStale(K key) {
+        Entry<V> e = entries.remove(key);
+        if (e != null) {
+            unlink(key, e.id);
+            stale.increment();
+        }
+    }
+
+    /* Удаляет все ключи, указывающие на id; вызывается после коммита изменения сущности */
+    synchronized void invalidateId(V id) {
+        Set<K> keys = keysById.remove(id);
+        if (keys == null) return;
+        for (K key : keys) entries.remove(key);
+        invalidations.increment();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private void unlink(K key, V id) {
+        Set<K> keys = keysById.get(id);
+        if (keys != null && keys.remove(key) && keys.isEmpty()) keysById.remove(id);
+    }
+
+    synchronized Map<String, Object> stats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("size", entries.size());
+        s.put("maxSize", maxSize);
+        s.put("hits", h);
+        s.put("misses", m);
+        s.put("hitRate", h + m == 0 ? 0.0 : (double) h / (h + m));
+        s.put("stale", stale.sum());
+        s.put("evictions", evictions.sum());
+        s.put("invalidations", invalidations.sum());
+        return s;
+    }
+
+    private static final class Entry<V> {
+        private final V id;
+        private final long createdAt;
+
+        private Entry(V id, long createdAt) {
+            this.id = id;
+            this.createdAt = createdAt;
+        }
+    }
+}
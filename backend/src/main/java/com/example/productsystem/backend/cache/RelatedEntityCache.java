@@ -0,0 +1,128 @@
+package com.example.productsystem.backend.cache;
+
+import com.example.productsystem.backend.entity.Coordinates;
+import com.example.productsystem.backend.entity.Organization;
+import com.example.productsystem.backend.entity.Person;
+import com.example.productsystem.backend.event.ChangeType;
+import com.example.productsystem.backend.event.CoordinatesChangeEvent;
+import com.example.productsystem.backend.event.OrganizationChangeEvent;
+import com.example.productsystem.backend.event.PersonChangeEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Кэш поиска связанных сущностей при записи Product: passportID -> Person, нормализованное имя -> Organization,
+ * (x, y) -> Coordinates. Кэш passportID -> Person также заполняется лениво при поиске людей по паспорту. Хранит только id, найденная по id сущность сверяется с ключом,
+ * поэтому устаревшая запись приводит к обычному запросу, а не к неверной связи.
+ * Новые записи попадают в кэш только после коммита транзакции, которая их нашла или создала;
+ * изменения Person, Organization и Coordinates вытесняют записи тоже после коммита.
+ */
+@ApplicationScoped
+public class RelatedEntityCache {
+
+    private static final int MAX_SIZE = 10_000;
+    /* passportID -> id обслуживает и чтения PersonService, поэтому у него отдельная, большая граница */
+    private static final int PERSONS_MAX_SIZE = 100_000;
+    private static final long TTL_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private final LookupCache<String, Long> persons = new LookupCache<>(PERSONS_MAX_SIZE, TTL_NANOS);
+    private final LookupCache<String, Integer> organizations = new LookupCache<>(MAX_SIZE, TTL_NANOS);
+    private final LookupCache<String, Long> coordinates = new LookupCache<>(MAX_SIZE, TTL_NANOS);
+
+    @Inject
+    private Event<Resolved> resolved;
+
+    public Long personId(String passportID) {
+        return persons.get(passportID);
+    }
+
+    public Integer organizationId(String name) {
+        return organizations.get(Organization.normalizeName(name));
+    }
+
+    public Long coordinatesId(Integer x, Double y) {
+        return coordinates.get(coordinatesKey(x, y));
+    }
+
+    /* Проверка сущности, найденной по id из кэша; при несовпадении запись удаляется */
+    public boolean isPerson(String passportID, Person person) {
+        if (person != null && passportID.equals(person.getPassportID())) return true;
+        persons.removeStale(passportID);
+        return false;
+    }
+
+    public boolean isOrganization(String name, Organization organization) {
+        String key = Organization.normalizeName(name);
+        if (organization != null && key.equals(organization.getNormalizedName())) return true;
+        organizations.removeStale(key);
+        return false;
+    }
+
+    public boolean isCoordinates(Integer x, Double y, Coordinates c) {
+        if (c != null && x.equals(c.getX()) && y.equals(c.getY())) return true;
+        coordinates.removeStale(coordinatesKey(x, y));
+        return false;
+    }
+
+    /*
+     * Запоминает результат разрешения связей продукта после коммита текущей транзакции.
+     * manufacturerName - имя, по которому искали организацию; совпадает с её именем после нормализации.
+     */
+    public void remember(Person owner, String manufacturerName, Organization manufacturer, Coordinates coords) {
+        Resolved r = new Resolved();
+        if (owner != null && owner.getId() != null && owner.getPassportID() != null) {
+            r.persons.put(owner.getPassportID(), owner.getId());
+        }
+        if (manufacturer != null && manufacturer.getId() != null && manufacturerName != null) {
+            r.organizations.put(Organization.normalizeName(manufacturerName), manufacturer.getId());
+        }
+        if (coords != null && coords.getId() != null && coords.getX() != null && coords.getY() != null) {
+            r.coordinates.put(coordinatesKey(coords.getX(), coords.getY()), coords.getId());
+        }
+        if (!r.persons.isEmpty() || !r.organizations.isEmpty() || !r.coordinates.isEmpty()) resolved.fire(r);
+    }
+
+    void onResolved(@Observes(during = TransactionPhase.AFTER_SUCCESS) Resolved r) {
+        r.persons.forEach(persons::put);
+        r.organizations.forEach(organizations::put);
+        r.coordinates.forEach(coordinates::put);
+    }
+
+    void onPersonChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) PersonChangeEvent event) {
+        if (event.getType() != ChangeType.CREATED) persons.invalidateId(event.getId());
+    }
+
+    void onCoordinatesChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) CoordinatesChangeEvent event) {
+        if (event.getType() != ChangeType.CREATED) coordinates.invalidateId(event.getId());
+    }
+
+    void onOrganizationChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) OrganizationChangeEvent event) {
+        if (event.getType() != ChangeType.CREATED) organizations.invalidateId(event.getId());
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("persons", persons.stats());
+        s.put("organizations", organizations.stats());
+        s.put("coordinates", coordinates.stats());
+        return s;
+    }
+
+    private static String coordinatesKey(Integer x, Double y) {
+        return x + ":" + y;
+    }
+
+    /* Результаты разрешения связей одной транзакции; применяются наблюдателем после коммита */
+    public static final class Resolved {
+        private final Map<String, Long> persons = new LinkedHashMap<>();
+        private final Map<String, Integer> organizations = new LinkedHashMap<>();
+        private final Map<String, Long> coordinates = new LinkedHashMap<>();
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.productsystem.backend.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 
@@ -9,10 +11,13 @@ import jakarta.validation.constraints.NotNull;
  * Coordinates класс содержащий в себе координаты X и Y.
   */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "coordinates")
 @Table(name = "coordinates")
 public class Coordinates {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "coordinates_seq")
+    @SequenceGenerator(name = "coordinates_seq", sequenceName = "coordinates_seq", allocationSize = 50)
     private Long id;
 
     @NotNull
@@ -1,16 +1,24 @@
 package com.example.productsystem.backend.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 
 /*
  * Location класс содержащий в себе координаты X, Y, Z и название локации.
-  */
+  * Незагруженные строки догружаются пакетами по 50 id (IN), а не отдельным select на каждую ссылку.
+ */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "locations")
+@BatchSize(size = 50)
 @Table(name = "locations")
 public class Location {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "locations_seq")
+    @SequenceGenerator(name = "locations_seq", sequenceName = "locations_seq", allocationSize = 50)
     private Long id;
 
     private long x;
@@ -2,25 +2,48 @@ package com.example.productsystem.backend.entity;
 
 import com.example.productsystem.common.OrganizationType;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 
+import java.util.Locale;
+
 
 /*
  * Organization класс содержащий в себе информацию об организации.
+ * Граф "Organization.dto" описывает всё, что читает OrganizationMapper.toDTO: оба адреса с городами.
  */
 @Entity
-@Table(name = "organizations")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "organizations")
+@NamedEntityGraph(name = Organization.DTO_GRAPH,
+        attributeNodes = {
+                @NamedAttributeNode(value = "officialAddress", subgraph = "address"),
+                @NamedAttributeNode(value = "postalAddress", subgraph = "address")
+        },
+        subgraphs = @NamedSubgraph(name = "address", attributeNodes = @NamedAttributeNode("town")))
+@Table(name = "organizations", uniqueConstraints = {
+        @UniqueConstraint(name = "ux_organizations_normalized_name", columnNames = "normalizedName")
+})
 public class Organization {
+
+    public static final String DTO_GRAPH = "Organization.dto";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "organizations_seq")
+    @SequenceGenerator(name = "organizations_seq", sequenceName = "organizations_seq", allocationSize = 50)
     private Integer id;
 
     @NotBlank
     @Column(nullable = false)
     private String name;
 
+    /* Ключ точного поиска организации по имени, выставляется вместе с name (см. normalizeName) */
+    @Column(nullable = false)
+    private String normalizedName;
+
     @NotNull
     @OneToOne(cascade = CascadeType.ALL)
     private Address officialAddress;
@@ -47,7 +70,7 @@ public class Organization {
     }
 
     public Organization(String name, Address officialAddress, Long annualTurnover, int employeesCount, int rating, OrganizationType type, Address postalAddress) {
-        this.name = name;
+        setName(name);
         this.officialAddress = officialAddress;
         this.annualTurnover = annualTurnover;
         this.employeesCount = employeesCount;
@@ -70,6 +93,16 @@ public class Organization {
 
     public void setName(String name) {
         this.name = name;
+        this.normalizedName = normalizeName(name);
+    }
+
+    public String getNormalizedName() {
+        return normalizedName;
+    }
+
+    /* Имя без крайних пробелов, с одиночными пробелами между словами, в нижнем регистре */
+    public static String normalizeName(String name) {
+        return name == null ? null : name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
     }
 
     public Address getOfficialAddress() {
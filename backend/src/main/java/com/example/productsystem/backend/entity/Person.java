@@ -3,6 +3,8 @@ package com.example.productsystem.backend.entity;
 import com.example.productsystem.common.Color;
 import com.example.productsystem.common.Country;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 
@@ -11,10 +13,20 @@ import jakarta.validation.constraints.NotNull;
  * Person класс содержащий в себе информацию о человеке.
  */
 @Entity
-@Table(name = "persons")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "persons")
+@Table(name = "persons", uniqueConstraints = {
+        @UniqueConstraint(name = "ux_persons_passport_id", columnNames = "passportID")
+}, indexes = {
+        // keyset-пагинация фильтров по равенству: WHERE attr = ? AND id > ? ORDER BY id
+        @Index(name = "ix_persons_nationality_id", columnList = "nationality, id"),
+        @Index(name = "ix_persons_eye_color_id", columnList = "eyeColor, id"),
+        @Index(name = "ix_persons_hair_color_id", columnList = "hairColor, id")
+})
 public class Person {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "persons_seq")
+    @SequenceGenerator(name = "persons_seq", sequenceName = "persons_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -33,6 +45,7 @@ public class Person {
     private Location location;
 
     @NotBlank
+    @Column(nullable = false)
     private String passportID;
 
     @Enumerated(EnumType.STRING)
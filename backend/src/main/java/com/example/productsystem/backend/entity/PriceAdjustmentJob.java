@@ -0,0 +1,189 @@
+package com.example.productsystem.backend.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.Positive;
+
+import java.time.LocalDateTime;
+
+/*
+ * PriceAdjustmentJob класс содержащий в себе состояние задания массового изменения цен.
+ * Цены меняются пакетами по возрастанию id; lastId - последний id уже закоммиченного пакета,
+ * он сохраняется в той же транзакции, что и обновление цен, поэтому после перезапуска задание продолжается с него.
+ */
+@Entity
+@Table(name = "price_adjustment_jobs")
+public class PriceAdjustmentJob {
+
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "price_adjustment_jobs_seq")
+    @SequenceGenerator(name = "price_adjustment_jobs_seq", sequenceName = "price_adjustment_jobs_seq", allocationSize = 1)
+    private Long id;
+
+    @Column(nullable = false)
+    private int percent;
+
+    /* Критерии отбора продуктов: как у filterByField (field, value) и filter (name, priceMin, priceMax) */
+    private String field;
+
+    /* VALUE - ключевое слово H2 2.x, поэтому столбец назван иначе */
+    @Column(name = "filterValue")
+    private String value;
+
+    private String name;
+
+    private Float priceMin;
+
+    private Float priceMax;
+
+    @Positive
+    @Column(nullable = false)
+    private int chunkSize;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status = Status.RUNNING;
+
+    private Long lastId;
+
+    @Column(nullable = false)
+    private int updated;
+
+    @Column(nullable = false)
+    private int chunks;
+
+    private String error;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    private LocalDateTime finishedAt;
+
+    public PriceAdjustmentJob() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public int getPercent() {
+        return percent;
+    }
+
+    public void setPercent(int percent) {
+        this.percent = percent;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public void setField(String field) {
+        this.field = field;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Float getPriceMin() {
+        return priceMin;
+    }
+
+    public void setPriceMin(Float priceMin) {
+        this.priceMin = priceMin;
+    }
+
+    public Float getPriceMax() {
+        return priceMax;
+    }
+
+    public void setPriceMax(Float priceMax) {
+        this.priceMax = priceMax;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Long getLastId() {
+        return lastId;
+    }
+
+    public void setLastId(Long lastId) {
+        this.lastId = lastId;
+    }
+
+    public int getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(int updated) {
+        this.updated = updated;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    public void setChunks(int chunks) {
+        this.chunks = chunks;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
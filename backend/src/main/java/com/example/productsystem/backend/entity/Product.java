@@ -2,20 +2,42 @@ package com.example.productsystem.backend.entity;
 
 import com.example.productsystem.common.UnitOfMeasure;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import jakarta.validation.constraints.*;
 import java.time.LocalDate;
 
 /*
  * Product класс содержащий в себе информацию о продукте.
+ * Граф "Product.dto" описывает всё, что читает ProductMapper.toDTO, и загружается одним запросом с join.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "products")
+@NamedEntityGraph(name = Product.DTO_GRAPH,
+        attributeNodes = {
+                @NamedAttributeNode("coordinates"),
+                @NamedAttributeNode(value = "manufacturer", subgraph = "manufacturer"),
+                @NamedAttributeNode(value = "owner", subgraph = "owner")
+        },
+        subgraphs = {
+                @NamedSubgraph(name = "manufacturer", attributeNodes = {
+                        @NamedAttributeNode(value = "officialAddress", subgraph = "address"),
+                        @NamedAttributeNode(value = "postalAddress", subgraph = "address")
+                }),
+                @NamedSubgraph(name = "address", attributeNodes = @NamedAttributeNode("town")),
+                @NamedSubgraph(name = "owner", attributeNodes = @NamedAttributeNode("location"))
+        })
 @Table(name = "products", uniqueConstraints = {
         @UniqueConstraint(columnNames = "partNumber")
 })
 public class Product {
 
+    public static final String DTO_GRAPH = "Product.dto";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "products_seq")
+    @SequenceGenerator(name = "products_seq", sequenceName = "products_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -52,6 +74,10 @@ public class Product {
     @ManyToOne(cascade = CascadeType.ALL)
     private Person owner;
 
+    /* Версия строки: оптимистическая блокировка и ETag в ProductResource */
+    @Version
+    private Long version;
+
     public Product() {
     }
 
@@ -111,6 +137,10 @@ public class Product {
         return owner;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
     public void setId(Long id) {
         this.id = id;
     }
@@ -154,5 +184,9 @@ public class Product {
     public void setOwner(Person owner) {
         this.owner = owner;
     }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
 
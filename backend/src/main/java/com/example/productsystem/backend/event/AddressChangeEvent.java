@@ -0,0 +1,33 @@
+package com.example.productsystem.backend.event;
+
+import com.example.productsystem.common.AddressDTO;
+
+/*
+ * Событие изменения Address, публикуется AddressService.
+ * Наблюдатели получают его после коммита (TransactionPhase.AFTER_SUCCESS).
+ * Снимок address равен null для DELETED.
+ */
+public class AddressChangeEvent {
+
+    private final ChangeType type;
+    private final Long id;
+    private final AddressDTO address;
+
+    public AddressChangeEvent(ChangeType type, Long id, AddressDTO address) {
+        this.type = type;
+        this.id = id;
+        this.address = address;
+    }
+
+    public ChangeType getType() {
+        return type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public AddressDTO getAddress() {
+        return address;
+    }
+}
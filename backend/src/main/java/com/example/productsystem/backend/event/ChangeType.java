@@ -0,0 +1,10 @@
+package com.example.productsystem.backend.event;
+
+/*
+ * Тип изменения сущности, о котором сообщают события *ChangeEvent.
+ */
+public enum ChangeType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
@@ -0,0 +1,33 @@
+package com.example.productsystem.backend.event;
+
+import com.example.productsystem.common.CoordinatesDTO;
+
+/*
+ * Событие изменения Coordinates, публикуется CoordinatesService.
+ * Наблюдатели получают его после коммита (TransactionPhase.AFTER_SUCCESS).
+ * Снимок coordinates равен null для DELETED.
+ */
+public class CoordinatesChangeEvent {
+
+    private final ChangeType type;
+    private final Long id;
+    private final CoordinatesDTO coordinates;
+
+    public CoordinatesChangeEvent(ChangeType type, Long id, CoordinatesDTO coordinates) {
+        this.type = type;
+        this.id = id;
+        this.coordinates = coordinates;
+    }
+
+    public ChangeType getType() {
+        return type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public CoordinatesDTO getCoordinates() {
+        return coordinates;
+    }
+}
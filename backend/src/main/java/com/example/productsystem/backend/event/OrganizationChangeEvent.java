@@ -0,0 +1,33 @@
+package com.example.productsystem.backend.event;
+
+import com.example.productsystem.common.OrganizationDTO;
+
+/*
+ * Событие изменения Organization, публикуется OrganizationService.
+ * Наблюдатели получают его после коммита (TransactionPhase.AFTER_SUCCESS).
+ * Снимок organization равен null для DELETED.
+ */
+public class OrganizationChangeEvent {
+
+    private final ChangeType type;
+    private final Integer id;
+    private final OrganizationDTO organization;
+
+    public OrganizationChangeEvent(ChangeType type, Integer id, OrganizationDTO organization) {
+        this.type = type;
+        this.id = id;
+        this.organization = organization;
+    }
+
+    public ChangeType getType() {
+        return type;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public OrganizationDTO getOrganization() {
+        return organization;
+    }
+}
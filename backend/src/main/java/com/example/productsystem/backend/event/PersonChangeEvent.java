@@ -0,0 +1,33 @@
+package com.example.productsystem.backend.event;
+
+import com.example.productsystem.common.PersonDTO;
+
+/*
+ * Событие изменения Person, публикуется PersonService.
+ * Наблюдатели получают его после коммита (TransactionPhase.AFTER_SUCCESS).
+ * Снимок person равен null для DELETED.
+ */
+public class PersonChangeEvent {
+
+    private final ChangeType type;
+    private final Long id;
+    private final PersonDTO person;
+
+    public PersonChangeEvent(ChangeType type, Long id, PersonDTO person) {
+        this.type = type;
+        this.id = id;
+        this.person = person;
+    }
+
+    public ChangeType getType() {
+        return type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public PersonDTO getPerson() {
+        return person;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.productsystem.backend.event;
+
+import com.example.productsystem.common.LocationDTO;
+
+import java.util.Map;
+
+/*
+ * Событие пакетного изменения местоположений Person, публикуется PersonService.applyLocations.
+ * Меняются только Location, поэтому вместо PersonChangeEvent на каждого человека публикуется одно событие на пакет:
+ * наблюдатели, которым местоположение не нужно (имена, атрибуты, счётчики, поиск продуктов), его не получают.
+ * Наблюдатели получают его после коммита (TransactionPhase.AFTER_SUCCESS).
+ */
+public class PersonLocationsChangedEvent {
+
+    private final Map<Long, LocationDTO> locations;
+
+    public PersonLocationsChangedEvent(Map<Long, LocationDTO> locations) {
+        this.locations = locations;
+    }
+
+    /* Новые местоположения по id человека */
+    public Map<Long, LocationDTO> getLocations() {
+        return locations;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.productsystem.backend.event;
+
+import com.example.productsystem.common.ProductDTO;
+
+/*
+ * Событие изменения Product.
+ * Публикуется ProductService внутри транзакции; наблюдатели подписываются с
+ * TransactionPhase.AFTER_SUCCESS и получают его только после успешного коммита.
+ * Снимок product строится до коммита и равен null для DELETED.
+ */
+public class ProductChangeEvent {
+
+    private final ChangeType type;
+    private final Long id;
+    private final ProductDTO product;
+
+    public ProductChangeEvent(ChangeType type, Long id, ProductDTO product) {
+        this.type = type;
+        this.id = id;
+        this.product = product;
+    }
+
+    public ChangeType getType() {
+        return type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public ProductDTO getProduct() {
+        return product;
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.productsystem.backend.event;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+ * Лента изменений продуктов для Server-Sent Events (GET /products/stream).
+ * События после коммита только складываются в буфер, поэтому пишущие транзакции никогда не ждут подписчиков.
+ * Раз в FLUSH_INTERVAL_MS буфер сворачивается (по id остаётся последнее изменение), сериализуется один раз
+ * и один и тот же OutboundSseEvent отправляется всем подписчикам.
+ * Подписчик, у которого накопилось MAX_IN_FLIGHT неподтверждённых отправок, пропускает пакеты
+ * и затем получает событие "resync"; после MAX_SKIPPED пропусков подряд он отключается.
+ */
+@ApplicationScoped
+public class ProductChangeFeed {
+
+    private static final Logger LOG = Logger.getLogger(ProductChangeFeed.class.getName());
+
+    private static final long FLUSH_INTERVAL_MS = 250;
+    private static final int MAX_BATCH = 500;
+    private static final int MAX_IN_FLIGHT = 16;
+    private static final int MAX_SKIPPED = 40;
+
+    private static final Jsonb JSONB = JsonbBuilder.create();
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Object pendingLock = new Object();
+    private Map<Long, ProductChangeEvent> pending = new LinkedHashMap<>();
+    private List<ProductsRepricedEvent> pendingRepriced = new ArrayList<>();
+    private int pendingOverflow;
+
+    private volatile Sse sse;
+
+    @Resource
+    private ManagedScheduledExecutorService executor;
+
+    private ScheduledFuture<?> flusher;
+
+    @PostConstruct
+    void start() {
+        flusher = executor.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (flusher != null) flusher.cancel(true);
+        subscribers.forEach(ProductChangeFeed::close);
+        subscribers.clear();
+    }
+
+    public void subscribe(SseEventSink sink, Sse sse) {
+        this.sse = sse;
+        subscribers.add(new Subscriber(sink));
+    }
+
+    void onProductChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) ProductChangeEvent event) {
+        if (subscribers.isEmpty()) return;
+        synchronized (pendingLock) {
+            if (pending.size() < MAX_BATCH || pending.containsKey(event.getId())) {
+                pending.remove(event.getId());
+                pending.put(event.getId(), event);
+            } else {
+                pendingOverflow++;
+            }
+        }
+    }
+
+    void onRepriced(@Observes(during = TransactionPhase.AFTER_SUCCESS) ProductsRepricedEvent event) {
+        if (subscribers.isEmpty()) return;
+        synchronized (pendingLock) {
+            pendingRepriced.add(event);
+        }
+    }
+
+    private void flush() {
+        Map<Long, ProductChangeEvent> changes;
+        List<ProductsRepricedEvent> repriced;
+        int overflow;
+        synchronized (pendingLock) {
+            if (pending.isEmpty() && pendingRepriced.isEmpty() && pendingOverflow == 0) return;
+            changes = pending;
+            repriced = pendingRepriced;
+            overflow = pendingOverflow;
+            pending = new LinkedHashMap<>();
+            pendingRepriced = new ArrayList<>();
+            pendingOverflow = 0;
+        }
+
+        try {
+            if (overflow > 0) {
+                // Всплеск больше MAX_BATCH: вместо содержимого клиенты получают указание перечитать данные
+                broadcast("resync", Map.of("reason", "burst", "changes", changes.size() + overflow));
+            } else if (changes.size() == 1) {
+                broadcast("product", message(changes.values().iterator().next()));
+            } else if (!changes.isEmpty()) {
+                List<Map<String, Object>> batch = new ArrayList<>(changes.size());
+                changes.values().forEach(e -> batch.add(message(e)));
+                broadcast("products", batch);
+            }
+            for (ProductsRepricedEvent e : repriced) {
+                if (e.getPrices() == null) {
+                    broadcast("resync", Map.of("reason", "repriced"));
+                } else {
+                    broadcast("repriced", Map.of("percent", e.getPercent(), "updated", e.getUpdated()));
+                }
+            }
+        } catch (RuntimeException e) {
+            // Ошибка одной рассылки не должна останавливать планировщик
+            LOG.log(Level.WARNING, "Failed to broadcast product changes", e);
+        }
+    }
+
+    private void broadcast(String name, Object payload) {
+        Sse current = sse;
+        if (current == null || subscribers.isEmpty()) return;
+        OutboundSseEvent event = current.newEventBuilder()
+                .id(String.valueOf(sequence.incrementAndGet()))
+                .name(name)
+                .mediaType(MediaType.TEXT_PLAIN_TYPE)
+                .data(String.class, JSONB.toJson(payload))
+                .build();
+
+        OutboundSseEvent resync = null;
+        for (Subscriber s : subscribers) {
+            if (s.sink.isClosed()) {
+                subscribers.remove(s);
+                continue;
+            }
+            if (s.inFlight.get() >= MAX_IN_FLIGHT) {
+                s.lagging = true;
+                if (++s.skipped >= MAX_SKIPPED) drop(s);
+                continue;
+            }
+            s.skipped = 0;
+            if (s.lagging) {
+                if (resync == null) {
+                    resync = current.newEventBuilder()
+                            .name("resync")
+                            .mediaType(MediaType.TEXT_PLAIN_TYPE)
+                            .data(String.class, JSONB.toJson(Map.of("reason", "lagging")))
+                            .build();
+                }
+                s.lagging = false;
+                send(s, resync);
+            }
+            send(s, event);
+        }
+    }
+
+    private void send(Subscriber s, OutboundSseEvent event) {
+        s.inFlight.incrementAndGet();
+        s.sink.send(event).whenComplete((r, error) -> {
+            s.inFlight.decrementAndGet();
+            if (error != null) drop(s);
+        });
+    }
+
+    private void drop(Subscriber s) {
+        subscribers.remove(s);
+        close(s);
+    }
+
+    private static void close(Subscriber s) {
+        try {
+            s.sink.close();
+        } catch (IOException ignored) {
+            // соединение уже разорвано клиентом
+        }
+    }
+
+    private static Map<String, Object> message(ProductChangeEvent e) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("type", e.getType());
+        m.put("id", e.getId());
+        if (e.getProduct() != null) m.put("product", e.getProduct());
+        return m;
+    }
+
+    private static final class Subscriber {
+        private final SseEventSink sink;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private int skipped;
+        private boolean lagging;
+
+        private Subscriber(SseEventSink sink) {
+            this.sink = sink;
+        }
+    }
+}
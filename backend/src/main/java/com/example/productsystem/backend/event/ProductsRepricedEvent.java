@@ -0,0 +1,35 @@
+package com.example.productsystem.backend.event;
+
+import java.util.Map;
+
+/*
+ * Событие массового изменения цен (UPDATE без загрузки сущностей).
+ * Отдельных ProductChangeEvent для затронутых строк нет. Событие публикуется после каждого закоммиченного пакета
+ * задания и несёт новые цены пакета; если цены неизвестны (prices == null, например после сбоя задания),
+ * наблюдатели, которые держат цены в памяти, должны перечитать их из базы.
+ */
+public class ProductsRepricedEvent {
+
+    private final int percent;
+    private final int updated;
+    private final Map<Long, Float> prices;
+
+    public ProductsRepricedEvent(int percent, int updated, Map<Long, Float> prices) {
+        this.percent = percent;
+        this.updated = updated;
+        this.prices = prices;
+    }
+
+    public int getPercent() {
+        return percent;
+    }
+
+    public int getUpdated() {
+        return updated;
+    }
+
+    /* Новые цены по id продукта или null, если нужно перечитать все цены */
+    public Map<Long, Float> getPrices() {
+        return prices;
+    }
+}
@@ -30,7 +30,8 @@ public class CorsFilter implements Filter {
 
         httpResponse.setHeader("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS, PATCH");
         httpResponse.setHeader("Access-Control-Allow-Headers",
-                "Origin, Content-Type, Accept, Authorization, X-Requested-With, X-Auth-Token");
+                "Origin, Content-Type, Accept, Authorization, X-Requested-With, X-Auth-Token, If-Match, If-None-Match");
+        httpResponse.setHeader("Access-Control-Expose-Headers", "X-Next-Cursor, ETag");
         httpResponse.setHeader("Access-Control-Allow-Credentials", "true");
         httpResponse.setHeader("Access-Control-Max-Age", "3600");
 
@@ -0,0 +1,64 @@
+package com.example.productsystem.backend.index;
+
+/*
+ * Фильтр Блума для строк на массиве long[].
+ * mightContain == false означает, что строки точно нет; true - что она может быть (ложные срабатывания ~1%).
+ * Удаление не поддерживается: владелец перестраивает фильтр, когда удалённых ключей становится много.
+ */
+public final class BloomFilter {
+
+    /* ~9.6 бит и 7 хешей на ключ дают около 1% ложных срабатываний */
+    private static final int BITS_PER_KEY = 10;
+    private static final int HASHES = 7;
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int capacity;
+
+    public BloomFilter(int capacity) {
+        this.capacity = Math.max(capacity, 1024);
+        this.bitCount = (long) this.capacity * BITS_PER_KEY;
+        this.bits = new long[(int) ((bitCount + 63) >>> 6)];
+    }
+
+    /* Количество ключей, на которое рассчитан фильтр */
+    public int capacity() {
+        return capacity;
+    }
+
+    public void add(String key) {
+        long h = hash(key);
+        long h1 = h;
+        long h2 = (h >>> 32) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    public boolean mightContain(String key) {
+        long h = hash(key);
+        long h1 = h;
+        long h2 = (h >>> 32) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /* FNV-1a по UTF-16 символам с финальным перемешиванием из MurmurHash3 */
+    static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.productsystem.backend.index;
+
+import jakarta.enterprise.concurrent.Asynchronous;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Transactional;
+
+import java.util.concurrent.CompletableFuture;
+
+/*
+ * Единая точка полной перестройки индексов в памяти.
+ * Перестройка выполняется управляемым исполнителем сервера, а не потоком развёртывания или пишущей транзакции,
+ * и в собственной транзакции: без неё курсоры сканов репозиториев не читаются порциями fetch size.
+ * Пока перестройка идёт, индекс не готов и запросы обслуживаются SQL.
+ */
+@ApplicationScoped
+public class IndexBootstrap {
+
+    @Asynchronous
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public CompletableFuture<Void> rebuild(Runnable rebuild) {
+        rebuild.run();
+        return Asynchronous.Result.complete(null);
+    }
+}
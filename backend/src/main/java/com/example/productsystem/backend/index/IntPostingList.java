@@ -0,0 +1,52 @@
+package com.example.productsystem.backend.index;
+
+import java.util.Arrays;
+
+/*
+ * Отсортированный список int-идентификаторов без повторов на примитивном массиве.
+ * Новые id обычно растут, поэтому вставка в большинстве случаев сводится к добавлению в конец.
+ */
+public final class IntPostingList {
+
+    private int[] ids = new int[4];
+    private int size;
+
+    public boolean add(int id) {
+        int pos = size > 0 && ids[size - 1] < id ? -(size + 1) : Arrays.binarySearch(ids, 0, size, id);
+        if (pos >= 0) return false;
+        pos = -pos - 1;
+        if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+        System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+        ids[pos] = id;
+        size++;
+        return true;
+    }
+
+    public boolean remove(int id) {
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos < 0) return false;
+        System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+        size--;
+        return true;
+    }
+
+    public boolean contains(int id) {
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    public int get(int index) {
+        return ids[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+}
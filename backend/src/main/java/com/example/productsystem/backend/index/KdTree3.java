@@ -0,0 +1,234 @@
+package com.example.productsystem.backend.index;
+
+/*
+ * Статическое k-d дерево по точкам трёхмерного пространства на параллельных примитивных массивах.
+ * Дерево неявное: узел диапазона [lo, hi) лежит в его середине, ось разбиения чередуется x, y, z по глубине,
+ * слева не больше значения узла по оси, справа не меньше. Построение - O(n log n) выбором медианы на месте.
+ * Удаление не поддерживается: строки помечаются мёртвыми и пропускаются, дерево строится заново целиком.
+ */
+public final class KdTree3 {
+
+    /* Приёмник найденной точки: позиция в дереве и квадрат расстояния (для поиска в прямоугольнике - 0) */
+    public interface Visitor {
+        void visit(int pos, double distanceSquared);
+    }
+
+    private final long[] ids;
+    private final double[][] coords;
+    private final boolean[] dead;
+    private final int size;
+
+    /* Массивы передаются во владение дереву и переупорядочиваются при построении */
+    public KdTree3(long[] ids, double[] x, double[] y, double[] z, int size) {
+        this.ids = ids;
+        this.coords = new double[][]{x, y, z};
+        this.dead = new boolean[size];
+        this.size = size;
+        build(0, size, 0);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long id(int pos) {
+        return ids[pos];
+    }
+
+    public double coord(int pos, int axis) {
+        return coords[axis][pos];
+    }
+
+    public boolean isDead(int pos) {
+        return dead[pos];
+    }
+
+    public void kill(int pos) {
+        dead[pos] = true;
+    }
+
+    /* Все живые точки в прямоугольнике [min, max] по каждой оси */
+    public void within(double[] min, double[] max, Visitor visitor) {
+        within(0, size, 0, min, max, visitor);
+    }
+
+    private void within(int lo, int hi, int axis, double[] min, double[] max, Visitor visitor) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            double v = coords[axis][mid];
+            if (!dead[mid] && inside(mid, min, max)) visitor.visit(mid, 0);
+            int next = axis == 2 ? 0 : axis + 1;
+            boolean left = min[axis] <= v;
+            boolean right = max[axis] >= v;
+            if (left && right) {
+                within(lo, mid, next, min, max, visitor);
+                lo = mid + 1;
+            } else if (left) {
+                hi = mid;
+            } else if (right) {
+                lo = mid + 1;
+            } else {
+                return;
+            }
+            axis = next;
+        }
+    }
+
+    private boolean inside(int pos, double[] min, double[] max) {
+        for (int a = 0; a < 3; a++) {
+            double v = coords[a][pos];
+            if (v < min[a] || v > max[a]) return false;
+        }
+        return true;
+    }
+
+    /* k ближайших живых точек к q; результат накапливается в heap, который может уже содержать кандидатов */
+    public void nearest(double[] q, NearestHeap heap) {
+        nearest(0, size, 0, q, heap);
+    }
+
+    private void nearest(int lo, int hi, int axis, double[] q, NearestHeap heap) {
+        if (lo >= hi) return;
+        int mid = (lo + hi) >>> 1;
+        if (!dead[mid]) heap.offer(ids[mid], distanceSquared(mid, q));
+        double diff = q[axis] - coords[axis][mid];
+        int next = axis == 2 ? 0 : axis + 1;
+        if (diff < 0) {
+            nearest(lo, mid, next, q, heap);
+            if (!heap.isFull() || diff * diff <= heap.worst()) nearest(mid + 1, hi, next, q, heap);
+        } else {
+            nearest(mid + 1, hi, next, q, heap);
+            if (!heap.isFull() || diff * diff <= heap.worst()) nearest(lo, mid, next, q, heap);
+        }
+    }
+
+    double distanceSquared(int pos, double[] q) {
+        double dx = coords[0][pos] - q[0];
+        double dy = coords[1][pos] - q[1];
+        double dz = coords[2][pos] - q[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private void build(int lo, int hi, int axis) {
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            select(lo, hi - 1, mid, axis);
+            int next = axis == 2 ? 0 : axis + 1;
+            build(lo, mid, next);
+            lo = mid + 1;
+            axis = next;
+        }
+    }
+
+    /* Выбор на месте: после него слева от k значения по оси не больше, справа - не меньше */
+    private void select(int lo, int hi, int k, int axis) {
+        double[] c = coords[axis];
+        while (hi > lo) {
+            double pivot = c[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (c[i] < pivot) i++;
+                while (c[j] > pivot) j--;
+                if (i <= j) swap(i++, j--);
+            }
+            if (k <= j) hi = j;
+            else if (k >= i) lo = i;
+            else return;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        for (double[] c : coords) {
+            double v = c[a];
+            c[a] = c[b];
+            c[b] = v;
+        }
+    }
+
+    /*
+     * Ограниченная max-куча по квадрату расстояния для поиска k ближайших.
+     * В корне - самый дальний из отобранных, он вытесняется более близким кандидатом.
+     */
+    public static final class NearestHeap {
+
+        private final long[] ids;
+        private final double[] distances;
+        private int size;
+
+        public NearestHeap(int k) {
+            this.ids = new long[k];
+            this.distances = new double[k];
+        }
+
+        public boolean isFull() {
+            return size == ids.length;
+        }
+
+        public double worst() {
+            return distances[0];
+        }
+
+        public void offer(long id, double distance) {
+            if (ids.length == 0) return;
+            if (size < ids.length) {
+                int i = size++;
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (distances[parent] >= distance) break;
+                    ids[i] = ids[parent];
+                    distances[i] = distances[parent];
+                    i = parent;
+                }
+                ids[i] = id;
+                distances[i] = distance;
+            } else if (distance < distances[0]) {
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) break;
+                    if (child + 1 < size && distances[child + 1] > distances[child]) child++;
+                    if (distances[child] <= distance) break;
+                    ids[i] = ids[child];
+                    distances[i] = distances[child];
+                    i = child;
+                }
+                ids[i] = id;
+                distances[i] = distance;
+            }
+        }
+
+        /* Отобранные id по возрастанию расстояния; квадраты расстояний записываются в distancesOut */
+        public long[] drain(double[] distancesOut) {
+            int n = size;
+            long[] result = new long[n];
+            for (int out = n - 1; out >= 0; out--) {
+                result[out] = ids[0];
+                distancesOut[out] = distances[0];
+                size--;
+                long lastId = ids[size];
+                double last = distances[size];
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) break;
+                    if (child + 1 < size && distances[child + 1] > distances[child]) child++;
+                    if (distances[child] <= last) break;
+                    ids[i] = ids[child];
+                    distances[i] = distances[child];
+                    i = child;
+                }
+                ids[i] = lastId;
+                distances[i] = last;
+            }
+            return result;
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+}
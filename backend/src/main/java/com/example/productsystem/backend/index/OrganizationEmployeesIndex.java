@@ -0,0 +1,110 @@
+package com.example.productsystem.backend.index;
+
+import com.example.productsystem.backend.event.ChangeType;
+import com.example.productsystem.backend.event.OrganizationChangeEvent;
+import com.example.productsystem.backend.repository.OrganizationRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+ * Индекс организаций по employeesCount: пары (employeesCount, id) в SortedPairs.
+ * Количество организаций в диапазоне - разность двух бинарных поисков, страница диапазона - отрезок массива.
+ * Индекс строится при старте приложения и обновляется событиями после коммита.
+ */
+@ApplicationScoped
+public class OrganizationEmployeesIndex {
+
+    private static final Logger LOG = Logger.getLogger(OrganizationEmployeesIndex.class.getName());
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SortedPairs pairs = new SortedPairs();
+    private final Map<Integer, Integer> employeesById = new HashMap<>();
+    private volatile boolean ready;
+
+    @Inject
+    private OrganizationRepository repo;
+
+    @Inject
+    private IndexBootstrap bootstrap;
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        bootstrap.rebuild(this::rebuild);
+    }
+
+    void onOrganizationChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) OrganizationChangeEvent event) {
+        lock.writeLock().lock();
+        try {
+            remove(event.getId());
+            if (event.getType() != ChangeType.DELETED) {
+                put(event.getId(), event.getOrganization().getEmployeesCount());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Полная перестройка из базы данных.
+     * Пока она идёт, isReady() возвращает false и запросы обслуживаются SQL.
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        ready = false;
+        try {
+            pairs.clear();
+            employeesById.clear();
+            repo.scanEmployees(row -> put((Integer) row[0], ((Number) row[1]).intValue()));
+            ready = true;
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Organization employees index is not available, falling back to SQL", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /* Количество организаций с employeesCount в [min, max] */
+    public int count(int min, int max) {
+        lock.readLock().lock();
+        try {
+            return Math.max(0, pairs.upperBound(max) - pairs.lowerBound(min));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /* id организаций с employeesCount в [min, max] по возрастанию (employeesCount, id), начиная с offset, не больше limit */
+    public int[] range(int min, int max, long offset, int limit) {
+        lock.readLock().lock();
+        try {
+            long from = pairs.lowerBound(min) + Math.max(0, offset);
+            long to = Math.min(pairs.upperBound(max), from + Math.max(0, limit));
+            return from >= to ? new int[0] : pairs.ids((int) from, (int) to, false);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(Integer id, int employees) {
+        pairs.insert(employees, id);
+        employeesById.put(id, employees);
+    }
+
+    private void remove(Integer id) {
+        Integer employees = employeesById.remove(id);
+        if (employees != null) pairs.remove(employees, id);
+    }
+}
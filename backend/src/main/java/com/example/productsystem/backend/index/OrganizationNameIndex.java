@@ -0,0 +1,102 @@
+package com.example.productsystem.backend.index;
+
+import com.example.productsystem.backend.entity.Organization;
+import com.example.productsystem.backend.event.ChangeType;
+import com.example.productsystem.backend.event.OrganizationChangeEvent;
+import com.example.productsystem.backend.repository.OrganizationRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+ * Точный поиск организации по нормализованному имени (Organization.normalizeName) для записи Product.
+ * Нормализованное имя уникально, поэтому индекс - это карта имя -> id и обратная карта id -> имя для изменений.
+ * Индекс строится при старте приложения и обновляется событиями после коммита.
+ */
+@ApplicationScoped
+public class OrganizationNameIndex {
+
+    private static final Logger LOG = Logger.getLogger(OrganizationNameIndex.class.getName());
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> idByName = new HashMap<>();
+    private final Map<Integer, String> nameById = new HashMap<>();
+    private volatile boolean ready;
+
+    @Inject
+    private OrganizationRepository repo;
+
+    @Inject
+    private IndexBootstrap bootstrap;
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        bootstrap.rebuild(this::rebuild);
+    }
+
+    void onOrganizationChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) OrganizationChangeEvent event) {
+        lock.writeLock().lock();
+        try {
+            remove(event.getId());
+            if (event.getType() != ChangeType.DELETED) {
+                put(event.getId(), Organization.normalizeName(event.getOrganization().getName()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Полная перестройка из базы данных.
+     * Пока она идёт, isReady() возвращает false и поиск идёт запросом по уникальному индексу.
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        ready = false;
+        try {
+            idByName.clear();
+            nameById.clear();
+            repo.scanNormalizedNames(row -> put((Integer) row[0], (String) row[1]));
+            ready = true;
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Organization name index is not available, falling back to SQL", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /* id организации с тем же нормализованным именем или null */
+    public Integer id(String name) {
+        String key = Organization.normalizeName(name);
+        if (key == null) return null;
+        lock.readLock().lock();
+        try {
+            return idByName.get(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(Integer id, String name) {
+        if (name == null) return;
+        idByName.put(name, id);
+        nameById.put(id, name);
+    }
+
+    private void remove(Integer id) {
+        String old = nameById.remove(id);
+        if (old != null) idByName.remove(old, id);
+    }
+}
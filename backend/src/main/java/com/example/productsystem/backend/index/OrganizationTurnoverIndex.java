@@ -0,0 +1,145 @@
+package com.example.productsystem.backend.index;
+
+import com.example.productsystem.backend.event.ChangeType;
+import com.example.productsystem.backend.event.OrganizationChangeEvent;
+import com.example.productsystem.backend.repository.OrganizationRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+ * Рейтинг организаций по annualTurnover: пары (annualTurnover, id) в SortedPairs.
+ * Любая страница сортировки в обоих направлениях и место организации в рейтинге
+ * находятся без обращения к БД. Индекс строится при старте приложения и обновляется событиями после коммита.
+ */
+@ApplicationScoped
+public class OrganizationTurnoverIndex {
+
+    private static final Logger LOG = Logger.getLogger(OrganizationTurnoverIndex.class.getName());
+
+    /* Место организации: 1 - наибольший оборот, организации с равным оборотом делят место */
+    public static final class Rank {
+        private final int id;
+        private final long annualTurnover;
+        private final long rank;
+        private final long total;
+
+        public Rank(int id, long annualTurnover, long rank, long total) {
+            this.id = id;
+            this.annualTurnover = annualTurnover;
+            this.rank = rank;
+            this.total = total;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public long getAnnualTurnover() {
+            return annualTurnover;
+        }
+
+        public long getRank() {
+            return rank;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SortedPairs pairs = new SortedPairs();
+    private final Map<Integer, Long> turnoverById = new HashMap<>();
+    private volatile boolean ready;
+
+    @Inject
+    private OrganizationRepository repo;
+
+    @Inject
+    private IndexBootstrap bootstrap;
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        bootstrap.rebuild(this::rebuild);
+    }
+
+    void onOrganizationChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) OrganizationChangeEvent event) {
+        lock.writeLock().lock();
+        try {
+            remove(event.getId());
+            if (event.getType() != ChangeType.DELETED) {
+                put(event.getId(), event.getOrganization().getAnnualTurnover());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Полная перестройка из базы данных.
+     * Пока она идёт, isReady() возвращает false и запросы обслуживаются SQL.
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        ready = false;
+        try {
+            pairs.clear();
+            turnoverById.clear();
+            repo.scanTurnovers(row -> put((Integer) row[0], (Long) row[1]));
+            ready = true;
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Organization turnover index is not available, falling back to SQL", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /* id организаций страницы page размера size по возрастанию или убыванию оборота */
+    public int[] page(int page, int size, boolean ascending) {
+        long from = (long) Math.max(0, page) * Math.max(0, size);
+        lock.readLock().lock();
+        try {
+            if (from >= pairs.size()) return new int[0];
+            return pairs.ids((int) from, (int) Math.min(pairs.size(), from + size), !ascending);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /* Место организации в рейтинге или null, если её нет в индексе */
+    public Rank rank(int id) {
+        lock.readLock().lock();
+        try {
+            Long turnover = turnoverById.get(id);
+            if (turnover == null) return null;
+            long greater = pairs.size() - pairs.upperBound(turnover);
+            return new Rank(id, turnover, greater + 1, pairs.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(Integer id, Long turnover) {
+        if (turnover == null) return;
+        pairs.insert(turnover, id);
+        turnoverById.put(id, turnover);
+    }
+
+    private void remove(Integer id) {
+        Long turnover = turnoverById.remove(id);
+        if (turnover != null) pairs.remove(turnover, id);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.productsystem.backend.index;
+
+import com.example.productsystem.backend.event.ChangeType;
+import com.example.productsystem.backend.event.ProductChangeEvent;
+import com.example.productsystem.backend.repository.ProductRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+ * Индекс уникального столбца products.partNumber.
+ * Фильтр Блума отвечает на большинство проверок отсутствующего partNumber, не трогая таблицу;
+ * при возможном попадании id берётся из компактной хеш-таблицы StringLongTable.
+ * Строится при старте, поддерживается событиями после коммита. Удалённые ключи остаются в фильтре,
+ * поэтому он перестраивается, когда их становится много или когда ключей больше расчётной ёмкости.
+ */
+@ApplicationScoped
+public class PartNumberIndex {
+
+    private static final Logger LOG = Logger.getLogger(PartNumberIndex.class.getName());
+
+    private static final long MISSING = -1;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final StringLongTable ids = new StringLongTable();
+    private final Map<Long, String> partNumberById = new HashMap<>();
+    private BloomFilter bloom = new BloomFilter(0);
+    private int removedSinceRebuild;
+    private volatile boolean ready;
+
+    @Inject
+    private ProductRepository repo;
+
+    @Inject
+    private IndexBootstrap bootstrap;
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        bootstrap.rebuild(this::rebuild);
+    }
+
+    void onProductChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) ProductChangeEvent event) {
+        lock.writeLock().lock();
+        try {
+            String old = partNumberById.remove(event.getId());
+            String partNumber = event.getType() != ChangeType.DELETED ? event.getProduct().getPartNumber() : null;
+            // ключ мог уже перейти к другому продукту, чьё событие пришло раньше: удаляется только своя запись
+            if (old != null && !old.equals(partNumber) && ids.remove(old, event.getId())) {
+                removedSinceRebuild++;
+            }
+            if (partNumber != null) {
+                ids.put(partNumber, event.getId());
+                partNumberById.put(event.getId(), partNumber);
+                bloom.add(partNumber);
+            }
+            if (removedSinceRebuild > ids.size() / 2 + 1024 || ids.size() > bloom.capacity()) rebuildBloom();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Полная перестройка из базы данных.
+     * Пока она идёт, isReady() возвращает false и поиск обслуживается SQL.
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        ready = false;
+        try {
+            ids.clear();
+            partNumberById.clear();
+            repo.scanPartNumbers(row -> {
+                ids.put((String) row[1], (Long) row[0]);
+                partNumberById.put((Long) row[0], (String) row[1]);
+            });
+            rebuildBloom();
+            ready = true;
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Part number index is not available, falling back to SQL", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /* id продукта с данным partNumber или null, если такого нет; вызывать только при isReady() */
+    public Long idOf(String partNumber) {
+        lock.readLock().lock();
+        try {
+            if (!bloom.mightContain(partNumber)) return null;
+            long id = ids.get(partNumber, MISSING);
+            return id == MISSING ? null : id;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /* Подмножество partNumbers, которые могут быть заняты; остальные точно свободны */
+    public List<String> mightContainAny(Collection<String> partNumbers) {
+        lock.readLock().lock();
+        try {
+            List<String> result = new ArrayList<>();
+            for (String pn : partNumbers) {
+                if (bloom.mightContain(pn)) result.add(pn);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /* Снимок всех partNumber в порядке возрастания */
+    public String[] partNumbers() {
+        String[] keys;
+        lock.readLock().lock();
+        try {
+            keys = ids.keys();
+        } finally {
+            lock.readLock().unlock();
+        }
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    private void rebuildBloom() {
+        BloomFilter fresh = new BloomFilter(ids.size() * 2);
+        ids.forEach((pn, id) -> fresh.add(pn));
+        bloom = fresh;
+        removedSinceRebuild = 0;
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.productsystem.backend.index;
+
+import com.example.productsystem.backend.event.ChangeType;
+import com.example.productsystem.backend.event.PersonChangeEvent;
+import com.example.productsystem.backend.repository.PersonRepository;
+import com.example.productsystem.common.Color;
+import com.example.productsystem.common.Country;
+import com.example.productsystem.common.PersonDTO;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+ * Битовый индекс Person по перечислениям eyeColor, hairColor и nationality.
+ * Каждому человеку выдаётся плотный порядковый номер; для каждого значения перечисления хранится битовая карта
+ * по этим номерам. Любая комбинация фильтров - AND карт, количество - popcount.
+ * Номера выдаются в порядке появления строк (при построении - по возрастанию id) и не переиспользуются,
+ * поэтому порядок выдачи стабилен между запросами; дыры от удалений убираются уплотнением,
+ * когда их становится больше, чем живых строк.
+ * Индекс строится при старте приложения и обновляется событиями после коммита.
+ */
+@ApplicationScoped
+public class PersonAttributeIndex {
+
+    private static final Logger LOG = Logger.getLogger(PersonAttributeIndex.class.getName());
+
+    private static final byte NONE = -1;
+    private static final Color[] COLORS = Color.values();
+    private static final Country[] COUNTRIES = Country.values();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> ordinalById = new HashMap<>();
+    private long[] ids = new long[1024];
+    private byte[] eyes = new byte[1024];
+    private byte[] hairs = new byte[1024];
+    private byte[] nationalities = new byte[1024];
+    private int next;
+
+    private long[] live = new long[16];
+    private final long[][] eyeBits = new long[COLORS.length][16];
+    private final long[][] hairBits = new long[COLORS.length][16];
+    private final long[][] nationalityBits = new long[COUNTRIES.length][16];
+    private volatile boolean ready;
+
+    @Inject
+    private PersonRepository repo;
+
+    @Inject
+    private IndexBootstrap bootstrap;
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        bootstrap.rebuild(this::rebuild);
+    }
+
+    void onPersonChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) PersonChangeEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (event.getType() == ChangeType.DELETED) {
+                remove(event.getId());
+            } else {
+                PersonDTO p = event.getPerson();
+                put(event.getId(), p.getEyeColor(), p.getHairColor(), p.getNationality());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Полная перестройка из базы данных.
+     * Пока она идёт, isReady возвращает false и запросы обслуживаются SQL.
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        ready = false;
+        try {
+            clear();
+            repo.scanAttributes(row -> put((Long) row[0], (Color) row[1], (Color) row[2], (Country) row[3]));
+            ready = true;
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Person attribute index is not available, falling back to SQL", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /* Количество людей, подходящих под все заданные (не null) критерии */
+    public long count(Color eyeColor, Color hairColor, Country nationality) {
+        lock.readLock().lock();
+        try {
+            long[][] maps = selected(eyeColor, hairColor, nationality);
+            long count = 0;
+            for (int w = 0; w < words(); w++) count += Long.bitCount(and(maps, w));
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /* id людей, подходящих под критерии, в порядке номеров: пропускаются первые offset, возвращается не больше limit */
+    public long[] find(Color eyeColor, Color hairColor, Country nationality, long offset, int limit) {
+        lock.readLock().lock();
+        try {
+            long[][] maps = selected(eyeColor, hairColor, nationality);
+            long[] result = new long[Math.max(0, limit)];
+            int n = 0;
+            long skip = offset;
+            for (int w = 0; w < words() && n < limit; w++) {
+                long word = and(maps, w);
+                int bits = Long.bitCount(word);
+                if (skip >= bits) {
+                    skip -= bits;
+                    continue;
+                }
+                while (word != 0 && n < limit) {
+                    int bit = Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    if (skip > 0) skip--;
+                    else result[n++] = ids[(w << 6) + bit];
+                }
+            }
+            return Arrays.copyOf(result, n);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long[][] selected(Color eyeColor, Color hairColor, Country nationality) {
+        return new long[][]{
+                live,
+                eyeColor != null ? eyeBits[eyeColor.ordinal()] : null,
+                hairColor != null ? hairBits[hairColor.ordinal()] : null,
+                nationality != null ? nationalityBits[nationality.ordinal()] : null
+        };
+    }
+
+    private static long and(long[][] maps, int w) {
+        long word = -1L;
+        for (long[] map : maps) {
+            if (map != null) word &= map[w];
+        }
+        return word;
+    }
+
+    private int words() {
+        return (next + 63) >>> 6;
+    }
+
+    private void put(Long id, Color eyeColor, Color hairColor, Country nationality) {
+        Integer ordinal = ordinalById.get(id);
+        if (ordinal == null) {
+            ensureCapacity();
+            ordinal = next++;
+            ordinalById.put(id, ordinal);
+            ids[ordinal] = id;
+            set(live, ordinal, true);
+        } else {
+            mark(ordinal, false);
+        }
+        eyes[ordinal] = eyeColor != null ? (byte) eyeColor.ordinal() : NONE;
+        hairs[ordinal] = hairColor != null ? (byte) hairColor.ordinal() : NONE;
+        nationalities[ordinal] = nationality != null ? (byte) nationality.ordinal() : NONE;
+        mark(ordinal, true);
+    }
+
+    private void remove(Long id) {
+        Integer ordinal = ordinalById.remove(id);
+        if (ordinal == null) return;
+        mark(ordinal, false);
+        set(live, ordinal, false);
+        int holes = next - ordinalById.size();
+        if (holes > 1024 && holes > ordinalById.size()) compact();
+    }
+
+    /* Установка или сброс битов строки в картах её значений */
+    private void mark(int ordinal, boolean value) {
+        if (eyes[ordinal] != NONE) set(eyeBits[eyes[ordinal]], ordinal, value);
+        if (hairs[ordinal] != NONE) set(hairBits[hairs[ordinal]], ordinal, value);
+        if (nationalities[ordinal] != NONE) set(nationalityBits[nationalities[ordinal]], ordinal, value);
+    }
+
+    private static void set(long[] map, int ordinal, boolean value) {
+        if (value) map[ordinal >>> 6] |= 1L << ordinal;
+        else map[ordinal >>> 6] &= ~(1L << ordinal);
+    }
+
+    /* Перенумерация живых строк подряд с сохранением порядка */
+    private void compact() {
+        long[] oldIds = ids;
+        byte[] oldEyes = eyes, oldHairs = hairs, oldNationalities = nationalities;
+        long[] oldLive = live;
+        int oldNext = next;
+        clear();
+        for (int i = 0; i < oldNext; i++) {
+            if ((oldLive[i >>> 6] & (1L << i)) != 0) {
+                put(oldIds[i],
+                        oldEyes[i] != NONE ? COLORS[oldEyes[i]] : null,
+                        oldHairs[i] != NONE ? COLORS[oldHairs[i]] : null,
+                        oldNationalities[i] != NONE ? COUNTRIES[oldNationalities[i]] : null);
+            }
+        }
+    }
+
+    private void clear() {
+        ordinalById.clear();
+        next = 0;
+        ids = new long[1024];
+        eyes = new byte[1024];
+        hairs = new byte[1024];
+        nationalities = new byte[1024];
+        live = new long[16];
+        for (int i = 0; i < COLORS.length; i++) {
+            eyeBits[i] = new long[16];
+            hairBits[i] = new long[16];
+        }
+        for (int i = 0; i < COUNTRIES.length; i++) nationalityBits[i] = new long[16];
+    }
+
+    private void ensureCapacity() {
+        if (next == ids.length) {
+            int capacity = next * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            eyes = Arrays.copyOf(eyes, capacity);
+            hairs = Arrays.copyOf(hairs, capacity);
+            nationalities = Arrays.copyOf(nationalities, capacity);
+            int words = capacity >>> 6;
+            live = Arrays.copyOf(live, words);
+            for (int i = 0; i < COLORS.length; i++) {
+                eyeBits[i] = Arrays.copyOf(eyeBits[i], words);
+                hairBits[i] = Arrays.copyOf(hairBits[i], words);
+            }
+            for (int i = 0; i < COUNTRIES.length; i++) nationalityBits[i] = Arrays.copyOf(nationalityBits[i], words);
+        }
+    }
+}
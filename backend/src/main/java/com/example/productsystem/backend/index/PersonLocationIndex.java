@@ -0,0 +1,261 @@
+package com.example.productsystem.backend.index;
+
+import com.example.productsystem.backend.event.ChangeType;
+import com.example.productsystem.backend.event.PersonChangeEvent;
+import com.example.productsystem.backend.event.PersonLocationsChangedEvent;
+import com.example.productsystem.backend.repository.PersonRepository;
+import com.example.productsystem.common.LocationDTO;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+ * Пространственный индекс местоположений Person: k ближайших к точке и поиск в прямоугольном параллелепипеде.
+ * Основная часть точек лежит в статическом KdTree3; изменения после построения копятся в небольшом буфере,
+ * который просматривается линейно, а старые позиции в дереве помечаются мёртвыми.
+ * Когда буфер и мёртвые строки вместе превышают REBUILD_MIN или 1/16 размера, дерево строится заново.
+ * Координата x (long) хранится как double: точность теряется только за пределами 2^53.
+ */
+@ApplicationScoped
+public class PersonLocationIndex {
+
+    private static final Logger LOG = Logger.getLogger(PersonLocationIndex.class.getName());
+
+    private static final int REBUILD_MIN = 4096;
+
+    /* Найденная точка: id человека и расстояние (для поиска в параллелепипеде - 0) */
+    public static final class Hit {
+        private final long id;
+        private final double distance;
+
+        Hit(long id, double distance) {
+            this.id = id;
+            this.distance = distance;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public double getDistance() {
+            return distance;
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private KdTree3 tree = emptyTree();
+    private final Map<Long, Integer> treePos = new HashMap<>();
+    private int deadCount;
+
+    private final Map<Long, Integer> deltaPos = new HashMap<>();
+    private long[] deltaIds = new long[64];
+    private double[][] delta = new double[3][64];
+    private int deltaSize;
+    private volatile boolean ready;
+
+    @Inject
+    private PersonRepository repo;
+
+    @Inject
+    private IndexBootstrap bootstrap;
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        bootstrap.rebuild(this::rebuild);
+    }
+
+    void onPersonChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) PersonChangeEvent event) {
+        lock.writeLock().lock();
+        try {
+            LocationDTO l = event.getPerson() != null ? event.getPerson().getLocation() : null;
+            if (event.getType() == ChangeType.DELETED || l == null) {
+                remove(event.getId());
+            } else {
+                put(event.getId(), l.getX(), l.getY(), l.getZ());
+            }
+            if (deltaSize + deadCount > Math.max(REBUILD_MIN, treePos.size() / 16)) compact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void onLocationsChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) PersonLocationsChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Long, LocationDTO> e : event.getLocations().entrySet()) {
+                LocationDTO l = e.getValue();
+                if (l == null) {
+                    remove(e.getKey());
+                } else {
+                    put(e.getKey(), l.getX(), l.getY(), l.getZ());
+                }
+            }
+            if (deltaSize + deadCount > Math.max(REBUILD_MIN, treePos.size() / 16)) compact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Полная перестройка из базы данных.
+     * Пока она идёт, isReady возвращает false.
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        ready = false;
+        try {
+            tree = emptyTree();
+            treePos.clear();
+            deadCount = 0;
+            deltaPos.clear();
+            deltaSize = 0;
+            repo.scanLocations(row -> put((Long) row[0], (Long) row[1], (Double) row[2], (Float) row[3]));
+            compact();
+            ready = true;
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Person location index is not available", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /* k ближайших к точке (x, y, z) по евклидову расстоянию, от ближнего к дальнему */
+    public Hit[] nearest(double x, double y, double z, int k) {
+        double[] q = {x, y, z};
+        KdTree3.NearestHeap heap = new KdTree3.NearestHeap(k);
+        lock.readLock().lock();
+        try {
+            tree.nearest(q, heap);
+            for (int i = 0; i < deltaSize; i++) {
+                double dx = delta[0][i] - x;
+                double dy = delta[1][i] - y;
+                double dz = delta[2][i] - z;
+                heap.offer(deltaIds[i], dx * dx + dy * dy + dz * dz);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        double[] distances = new double[heap.size()];
+        long[] ids = heap.drain(distances);
+        Hit[] hits = new Hit[ids.length];
+        for (int i = 0; i < ids.length; i++) hits[i] = new Hit(ids[i], Math.sqrt(distances[i]));
+        return hits;
+    }
+
+    /* id людей внутри [min, max] по каждой оси, не больше limit; total получает полное количество найденных */
+    public long[] within(double[] min, double[] max, int limit, long[] total) {
+        long[] result = new long[Math.max(0, limit)];
+        int[] n = {0};
+        long[] count = {0};
+        lock.readLock().lock();
+        try {
+            tree.within(min, max, (pos, d) -> {
+                if (n[0] < result.length) result[n[0]++] = tree.id(pos);
+                count[0]++;
+            });
+            for (int i = 0; i < deltaSize; i++) {
+                if (inside(i, min, max)) {
+                    if (n[0] < result.length) result[n[0]++] = deltaIds[i];
+                    count[0]++;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (total != null) total[0] = count[0];
+        return Arrays.copyOf(result, n[0]);
+    }
+
+    private boolean inside(int i, double[] min, double[] max) {
+        for (int a = 0; a < 3; a++) {
+            double v = delta[a][i];
+            if (v < min[a] || v > max[a]) return false;
+        }
+        return true;
+    }
+
+    private void put(Long id, double x, double y, double z) {
+        Integer pos = treePos.remove(id);
+        if (pos != null) {
+            tree.kill(pos);
+            deadCount++;
+        }
+        Integer d = deltaPos.get(id);
+        if (d == null) {
+            if (deltaSize == deltaIds.length) {
+                deltaIds = Arrays.copyOf(deltaIds, deltaSize * 2);
+                for (int a = 0; a < 3; a++) delta[a] = Arrays.copyOf(delta[a], deltaSize * 2);
+            }
+            d = deltaSize++;
+            deltaPos.put(id, d);
+            deltaIds[d] = id;
+        }
+        delta[0][d] = x;
+        delta[1][d] = y;
+        delta[2][d] = z;
+    }
+
+    private void remove(Long id) {
+        Integer pos = treePos.remove(id);
+        if (pos != null) {
+            tree.kill(pos);
+            deadCount++;
+        }
+        Integer d = deltaPos.remove(id);
+        if (d != null) {
+            int last = --deltaSize;
+            if (d != last) {
+                deltaIds[d] = deltaIds[last];
+                for (int a = 0; a < 3; a++) delta[a][d] = delta[a][last];
+                deltaPos.put(deltaIds[d], d);
+            }
+        }
+    }
+
+    private static KdTree3 emptyTree() {
+        return new KdTree3(new long[0], new double[0], new double[0], new double[0], 0);
+    }
+
+    /* Новое дерево из живых точек старого дерева и буфера; буфер и метки мёртвых строк сбрасываются */
+    private void compact() {
+        int n = treePos.size() + deltaSize;
+        long[] ids = new long[n];
+        double[] x = new double[n];
+        double[] y = new double[n];
+        double[] z = new double[n];
+        int i = 0;
+        for (int pos = 0; pos < tree.size(); pos++) {
+            if (tree.isDead(pos)) continue;
+            ids[i] = tree.id(pos);
+            x[i] = tree.coord(pos, 0);
+            y[i] = tree.coord(pos, 1);
+            z[i] = tree.coord(pos, 2);
+            i++;
+        }
+        for (int d = 0; d < deltaSize; d++, i++) {
+            ids[i] = deltaIds[d];
+            x[i] = delta[0][d];
+            y[i] = delta[1][d];
+            z[i] = delta[2][d];
+        }
+        tree = new KdTree3(ids, x, y, z, n);
+        treePos.clear();
+        for (int pos = 0; pos < n; pos++) treePos.put(tree.id(pos), pos);
+        deltaPos.clear();
+        deltaSize = 0;
+        deadCount = 0;
+    }
+}
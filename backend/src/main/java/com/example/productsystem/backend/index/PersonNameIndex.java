@@ -0,0 +1,208 @@
+package com.example.productsystem.backend.index;
+
+import com.example.productsystem.backend.event.ChangeType;
+import com.example.productsystem.backend.event.PersonChangeEvent;
+import com.example.productsystem.backend.repository.PersonRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/*
+ * Поиск Person по словам имени: отсортированный словарь нормализованных слов и список id для каждого слова.
+ * Нормализация - нижний регистр и удаление диакритики, поэтому "José" находится по "jose".
+ * Каждое слово запроса должно совпасть с началом какого-либо слова имени; полное совпадение слова ценится выше.
+ * Результаты упорядочены по убыванию оценки, затем по длине имени и id.
+ * Индекс строится при старте приложения и обновляется событиями после коммита.
+ */
+@ApplicationScoped
+public class PersonNameIndex {
+
+    private static final Logger LOG = Logger.getLogger(PersonNameIndex.class.getName());
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /* Слово запроса короче этого совпадает только с целым словом имени, а поиск подстроки в SQL по нему не выполняется */
+    public static final int MIN_PREFIX_LENGTH = 2;
+
+    private static final int EXACT_SCORE = 2;
+    private static final int PREFIX_SCORE = 1;
+
+    /* Найденный человек: id, имя и оценка совпадения */
+    public static final class Match {
+        private final long id;
+        private final String name;
+        private final int score;
+
+        public Match(long id, String name, int score) {
+            this.id = id;
+            this.name = name;
+            this.score = score;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getScore() {
+            return score;
+        }
+    }
+
+    /* По убыванию оценки, затем по длине имени и id */
+    private static final Comparator<Match> RANKING = (a, b) -> {
+        if (a.score != b.score) return Integer.compare(b.score, a.score);
+        if (a.name.length() != b.name.length()) return Integer.compare(a.name.length(), b.name.length());
+        return Long.compare(a.id, b.id);
+    };
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, IntPostingList> dictionary = new TreeMap<>();
+    private final Map<Integer, String> names = new HashMap<>();
+    private volatile boolean ready;
+
+    @Inject
+    private PersonRepository repo;
+
+    @Inject
+    private IndexBootstrap bootstrap;
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        bootstrap.rebuild(this::rebuild);
+    }
+
+    void onPersonChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) PersonChangeEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (event.getType() == ChangeType.DELETED) {
+                remove(Math.toIntExact(event.getId()));
+            } else {
+                put(Math.toIntExact(event.getId()), event.getPerson().getName());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Полная перестройка из базы данных.
+     * Пока она идёт, search возвращает null и запросы обслуживаются SQL.
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        ready = false;
+        try {
+            dictionary.clear();
+            names.clear();
+            repo.scanNames(row -> put(Math.toIntExact((Long) row[0]), (String) row[1]));
+            ready = true;
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Person name index is not available, falling back to SQL", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Люди, имя которых содержит слова, начинающиеся с каждого слова запроса.
+     * Слово запроса короче MIN_PREFIX_LENGTH совпадает только с целым словом, иначе одна буква обходила бы почти весь словарь.
+     * Возвращает страницу [offset, offset + limit) ранжированного результата
+     * или null, если индекс не построен или в запросе нет ни одного слова.
+     * Сортируется не весь результат: лучшие offset + limit совпадений отбираются ограниченной кучей.
+     */
+    public List<Match> search(String query, long offset, int limit) {
+        if (!ready) return null;
+        String[] terms = tokens(query);
+        if (terms.length == 0) return null;
+        lock.readLock().lock();
+        try {
+            Map<Integer, Integer> scores = null;
+            for (String term : terms) {
+                Map<Integer, Integer> termScores = new HashMap<>();
+                Map<String, IntPostingList> words = term.length() < MIN_PREFIX_LENGTH
+                        ? (dictionary.containsKey(term) ? Map.of(term, dictionary.get(term)) : Map.of())
+                        : dictionary.subMap(term, true, term + Character.MAX_VALUE, false);
+                for (Map.Entry<String, IntPostingList> e : words.entrySet()) {
+                    int score = e.getKey().equals(term) ? EXACT_SCORE : PREFIX_SCORE;
+                    IntPostingList ids = e.getValue();
+                    for (int i = 0; i < ids.size(); i++) {
+                        int id = ids.get(i);
+                        if (scores == null || scores.containsKey(id)) termScores.merge(id, score, Math::max);
+                    }
+                }
+                if (scores != null) {
+                    for (Map.Entry<Integer, Integer> e : termScores.entrySet()) e.setValue(e.getValue() + scores.get(e.getKey()));
+                }
+                scores = termScores;
+                if (scores.isEmpty()) break;
+            }
+
+            long from = Math.max(0, offset);
+            if (from >= scores.size() || limit <= 0) return new ArrayList<>();
+            int keep = (int) Math.min(scores.size(), from + limit);
+            // в корне кучи - худшее из отобранных, оно вытесняется лучшим кандидатом
+            PriorityQueue<Match> top = new PriorityQueue<>(keep, RANKING.reversed());
+            for (Map.Entry<Integer, Integer> e : scores.entrySet()) {
+                Match m = new Match(e.getKey(), names.get(e.getKey()), e.getValue());
+                if (top.size() < keep) {
+                    top.add(m);
+                } else if (RANKING.compare(m, top.peek()) < 0) {
+                    top.poll();
+                    top.add(m);
+                }
+            }
+            Match[] ranked = new Match[top.size()];
+            for (int i = ranked.length - 1; i >= 0; i--) ranked[i] = top.poll();
+            return new ArrayList<>(Arrays.asList(ranked).subList((int) from, ranked.length));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(int id, String name) {
+        remove(id);
+        if (name == null) return;
+        names.put(id, name);
+        for (String token : tokens(name)) {
+            dictionary.computeIfAbsent(token, k -> new IntPostingList()).add(id);
+        }
+    }
+
+    private void remove(int id) {
+        String old = names.remove(id);
+        if (old == null) return;
+        for (String token : tokens(old)) {
+            IntPostingList ids = dictionary.get(token);
+            if (ids != null && ids.remove(id) && ids.isEmpty()) dictionary.remove(token);
+        }
+    }
+
+    /* Слова строки после приведения к нижнему регистру и удаления диакритики, без повторов */
+    static String[] tokens(String s) {
+        if (s == null) return new String[0];
+        String normalized = MARKS.matcher(Normalizer.normalize(s, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+        return Arrays.stream(SEPARATORS.split(normalized)).filter(t -> !t.isEmpty()).distinct().toArray(String[]::new);
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.productsystem.backend.index;
+
+import com.example.productsystem.backend.event.ChangeType;
+import com.example.productsystem.backend.event.OrganizationChangeEvent;
+import com.example.productsystem.backend.event.ProductChangeEvent;
+import com.example.productsystem.backend.event.ProductsRepricedEvent;
+import com.example.productsystem.backend.repository.ProductRepository;
+import com.example.productsystem.common.OrganizationType;
+import com.example.productsystem.common.ProductDTO;
+import com.example.productsystem.common.UnitOfMeasure;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+ * Колоночный снимок полей продуктов, по которым строятся фасеты: unitOfMeasure, manufacturer.type, price, rating.
+ * Каждая колонка - примитивный массив, строка i описывает один продукт; удаление переносит последнюю строку на место удалённой.
+ * Фасеты считаются одним проходом по строкам, прошедшим фильтр; текстовые фильтры берутся из ProductTrigramIndex.
+ */
+@ApplicationScoped
+public class ProductFacetIndex {
+
+    private static final Logger LOG = Logger.getLogger(ProductFacetIndex.class.getName());
+
+    private static final byte NONE = -1;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long[] ids = new long[1024];
+    private byte[] units = new byte[1024];
+    private byte[] types = new byte[1024];
+    private int[] manufacturers = new int[1024];
+    private float[] prices = new float[1024];
+    private int[] ratings = new int[1024];
+    private int size;
+    private final Map<Long, Integer> rowById = new HashMap<>();
+    private volatile boolean ready;
+
+    @Inject
+    private ProductRepository repo;
+
+    @Inject
+    private IndexBootstrap bootstrap;
+
+    @Inject
+    private ProductTrigramIndex trigramIndex;
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        bootstrap.rebuild(this::rebuild);
+    }
+
+    void onProductChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) ProductChangeEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (event.getType() == ChangeType.DELETED) {
+                remove(event.getId());
+            } else {
+                ProductDTO p = event.getProduct();
+                put(event.getId(), p.getUnitOfMeasure(),
+                        p.getManufacturer() != null ? p.getManufacturer().getId() : null,
+                        p.getManufacturer() != null ? p.getManufacturer().getType() : null,
+                        p.getPrice(), p.getRating());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /* Тип организации мог измениться - он обновляется у всех её продуктов */
+    void onOrganizationChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) OrganizationChangeEvent event) {
+        if (event.getType() == ChangeType.CREATED) return;
+        byte type = event.getType() == ChangeType.DELETED || event.getOrganization().getType() == null
+                ? NONE : (byte) event.getOrganization().getType().ordinal();
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < size; i++) {
+                if (manufacturers[i] == event.getId()) types[i] = type;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void onRepriced(@Observes(during = TransactionPhase.AFTER_SUCCESS) ProductsRepricedEvent event) {
+        if (event.getPrices() == null) {
+            bootstrap.rebuild(this::rebuild);
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            event.getPrices().forEach((id, price) -> {
+                Integer row = rowById.get(id);
+                if (row != null) prices[row] = price != null ? price : Float.NaN;
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Полная перестройка из базы данных.
+     * Пока она идёт, facets возвращает null и фасеты считаются SQL.
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        ready = false;
+        try {
+            size = 0;
+            rowById.clear();
+            repo.scanFacetRows(null, null, null, null, null, row -> put((Long) row[0], (UnitOfMeasure) row[1],
+                    (Integer) row[2], (OrganizationType) row[3], (Float) row[4], (Integer) row[5]));
+            ready = true;
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Product facet index is not available, falling back to SQL", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Фасеты по продуктам, подходящим под фильтры filterByField (field, value) и filter (name, priceMin, priceMax).
+     * Возвращает null, если снимок не может ответить: он не построен или текстовый фильтр короче триграммы.
+     * Неизвестное поле фильтра приводит к IllegalArgumentException, как и в SQL-варианте.
+     */
+    public ProductFacets facets(String field, String value, String name, Float priceMin, Float priceMax) {
+        if (!ready) return null;
+        int[] candidates = null;
+        boolean[] allowedUnits = null;
+        boolean[] allowedTypes = null;
+
+        if (field != null && value != null && !value.trim().isEmpty()) {
+            String query = value.toLowerCase();
+            if ("unitOfMeasure".equals(field)) {
+                allowedUnits = matching(UnitOfMeasure.values(), query);
+            } else if ("manufacturer.type".equals(field)) {
+                allowedTypes = matching(OrganizationType.values(), query);
+            } else if (ProductTrigramIndex.FIELDS.contains(field)) {
+                candidates = trigramIndex.search(field, value);
+                if (candidates == null) return null;
+            } else {
+                throw new IllegalArgumentException("Unknown filter field: " + field);
+            }
+        }
+        if (name != null && !name.isEmpty()) {
+            int[] byName = trigramIndex.search("name", name);
+            if (byName == null) return null;
+            candidates = candidates == null ? byName : intersect(candidates, byName);
+        }
+
+        ProductFacets facets = new ProductFacets();
+        lock.readLock().lock();
+        try {
+            if (candidates == null) {
+                for (int row = 0; row < size; row++) {
+                    accept(facets, row, allowedUnits, allowedTypes, priceMin, priceMax);
+                }
+            } else {
+                for (int id : candidates) {
+                    Integer row = rowById.get((long) id);
+                    if (row != null) accept(facets, row, allowedUnits, allowedTypes, priceMin, priceMax);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return facets;
+    }
+
+    private void accept(ProductFacets facets, int row, boolean[] allowedUnits, boolean[] allowedTypes,
+                        Float priceMin, Float priceMax) {
+        if (allowedUnits != null && (units[row] == NONE || !allowedUnits[units[row]])) return;
+        if (allowedTypes != null && (types[row] == NONE || !allowedTypes[types[row]])) return;
+        if (priceMin != null && !(prices[row] >= priceMin)) return;
+        if (priceMax != null && !(prices[row] <= priceMax)) return;
+        facets.add(units[row], types[row], prices[row], ratings[row]);
+    }
+
+    private void put(Long id, UnitOfMeasure unit, Integer manufacturerId, OrganizationType type, Float price, Integer rating) {
+        Integer row = rowById.get(id);
+        if (row == null) {
+            ensureCapacity();
+            row = size++;
+            rowById.put(id, row);
+            ids[row] = id;
+        }
+        units[row] = unit != null ? (byte) unit.ordinal() : NONE;
+        types[row] = type != null ? (byte) type.ordinal() : NONE;
+        manufacturers[row] = manufacturerId != null ? manufacturerId : -1;
+        prices[row] = price != null ? price : Float.NaN;
+        ratings[row] = rating != null ? rating : 0;
+    }
+
+    private void remove(Long id) {
+        Integer row = rowById.remove(id);
+        if (row == null) return;
+        int last = --size;
+        if (row != last) {
+            ids[row] = ids[last];
+            units[row] = units[last];
+            types[row] = types[last];
+            manufacturers[row] = manufacturers[last];
+            prices[row] = prices[last];
+            ratings[row] = ratings[last];
+            rowById.put(ids[row], row);
+        }
+    }
+
+    private void ensureCapacity() {
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            units = Arrays.copyOf(units, capacity);
+            types = Arrays.copyOf(types, capacity);
+            manufacturers = Arrays.copyOf(manufacturers, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            ratings = Arrays.copyOf(ratings, capacity);
+        }
+    }
+
+    /* Значения перечисления, имя которых содержит query (как LIKE по строковой колонке enum) */
+    private static boolean[] matching(Enum<?>[] values, String query) {
+        boolean[] allowed = new boolean[values.length];
+        for (Enum<?> v : values) allowed[v.ordinal()] = v.name().toLowerCase().contains(query);
+        return allowed;
+    }
+
+    /* Пересечение двух отсортированных массивов id */
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+}
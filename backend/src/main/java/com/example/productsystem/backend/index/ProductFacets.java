@@ -0,0 +1,131 @@
+package com.example.productsystem.backend.index;
+
+import com.example.productsystem.common.OrganizationType;
+import com.example.productsystem.common.UnitOfMeasure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Накопитель фасетов каталога за один проход по строкам:
+ * количество по unitOfMeasure и manufacturer.type и гистограммы цены и рейтинга с равными интервалами.
+ * Значения цены и рейтинга копятся в примитивных массивах, чтобы границы гистограмм брались из самих данных.
+ */
+public final class ProductFacets {
+
+    private static final UnitOfMeasure[] UNITS = UnitOfMeasure.values();
+    private static final OrganizationType[] TYPES = OrganizationType.values();
+
+    private final int[] unitCounts = new int[UNITS.length];
+    private final int[] typeCounts = new int[TYPES.length];
+    private int withoutManufacturer;
+    private int withoutUnit;
+    private float[] prices = new float[256];
+    private int[] ratings = new int[256];
+    private int total;
+
+    /* unit и type - ordinal перечисления или -1, если значения нет */
+    public void add(int unit, int type, float price, int rating) {
+        if (unit >= 0) unitCounts[unit]++;
+        else withoutUnit++;
+        if (type >= 0) typeCounts[type]++;
+        else withoutManufacturer++;
+        if (total == prices.length) {
+            prices = Arrays.copyOf(prices, total * 2);
+            ratings = Arrays.copyOf(ratings, total * 2);
+        }
+        prices[total] = price;
+        ratings[total] = rating;
+        total++;
+    }
+
+    public Map<String, Object> toMap(int priceBuckets, int ratingBuckets) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("total", total);
+
+        Map<String, Integer> units = new LinkedHashMap<>();
+        for (UnitOfMeasure u : UNITS) units.put(u.name(), unitCounts[u.ordinal()]);
+        result.put("unitOfMeasure", units);
+        if (withoutUnit > 0) result.put("withoutUnitOfMeasure", withoutUnit);
+
+        Map<String, Integer> types = new LinkedHashMap<>();
+        for (OrganizationType t : TYPES) types.put(t.name(), typeCounts[t.ordinal()]);
+        result.put("manufacturerType", types);
+        result.put("withoutManufacturer", withoutManufacturer);
+
+        result.put("price", priceHistogram(priceBuckets));
+        result.put("rating", ratingHistogram(ratingBuckets));
+        return result;
+    }
+
+    private Map<String, Object> priceHistogram(int buckets) {
+        Map<String, Object> h = new LinkedHashMap<>();
+        if (total == 0) {
+            h.put("buckets", new ArrayList<>());
+            return h;
+        }
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        for (int i = 0; i < total; i++) {
+            min = Math.min(min, prices[i]);
+            max = Math.max(max, prices[i]);
+        }
+        int n = max > min ? buckets : 1;
+        double width = max > min ? ((double) max - min) / n : 0;
+        int[] counts = new int[n];
+        for (int i = 0; i < total; i++) {
+            int b = width == 0 ? 0 : (int) ((prices[i] - min) / width);
+            counts[Math.min(b, n - 1)]++;
+        }
+        List<Map<String, Object>> list = new ArrayList<>(n);
+        for (int b = 0; b < n; b++) {
+            list.add(bucket(min + b * width, b == n - 1 ? max : min + (b + 1) * width, counts[b]));
+        }
+        h.put("min", min);
+        h.put("max", max);
+        h.put("buckets", list);
+        return h;
+    }
+
+    private Map<String, Object> ratingHistogram(int buckets) {
+        Map<String, Object> h = new LinkedHashMap<>();
+        if (total == 0) {
+            h.put("buckets", new ArrayList<>());
+            return h;
+        }
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < total; i++) {
+            min = Math.min(min, ratings[i]);
+            max = Math.max(max, ratings[i]);
+        }
+        // рейтинг целый: ширина интервала целая, последний интервал может быть короче
+        long span = (long) max - min + 1;
+        long width = Math.max(1, (span + buckets - 1) / buckets);
+        int n = (int) ((span + width - 1) / width);
+        int[] counts = new int[n];
+        for (int i = 0; i < total; i++) {
+            counts[(int) ((ratings[i] - (long) min) / width)]++;
+        }
+        List<Map<String, Object>> list = new ArrayList<>(n);
+        for (int b = 0; b < n; b++) {
+            long from = min + b * width;
+            list.add(bucket(from, Math.min(max, from + width - 1), counts[b]));
+        }
+        h.put("min", min);
+        h.put("max", max);
+        h.put("buckets", list);
+        return h;
+    }
+
+    private static Map<String, Object> bucket(Object from, Object to, int count) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("from", from);
+        m.put("to", to);
+        m.put("count", count);
+        return m;
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.productsystem.backend.index;
+
+import com.example.productsystem.backend.event.ChangeType;
+import com.example.productsystem.backend.event.ProductChangeEvent;
+import com.example.productsystem.backend.event.ProductsRepricedEvent;
+import com.example.productsystem.backend.repository.ProductRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+ * Индекс цен продуктов: параллельные массивы float[] prices и long[] ids, упорядоченные по (price, id).
+ * Диапазон, количество и самые дешёвые продукты находятся бинарным поиском без обращения к БД.
+ * Одиночные изменения применяются инкрементально, после массового изменения цен индекс перечитывается.
+ */
+@ApplicationScoped
+public class ProductPriceIndex {
+
+    private static final Logger LOG = Logger.getLogger(ProductPriceIndex.class.getName());
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private float[] prices = new float[1024];
+    private long[] ids = new long[1024];
+    private int size;
+    private final Map<Long, Float> priceById = new HashMap<>();
+    private volatile boolean ready;
+
+    @Inject
+    private ProductRepository repo;
+
+    @Inject
+    private IndexBootstrap bootstrap;
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        bootstrap.rebuild(this::rebuild);
+    }
+
+    void onProductChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) ProductChangeEvent event) {
+        lock.writeLock().lock();
+        try {
+            remove(event.getId());
+            if (event.getType() != ChangeType.DELETED && event.getProduct().getPrice() != null) {
+                insert(event.getId(), event.getProduct().getPrice());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void onRepriced(@Observes(during = TransactionPhase.AFTER_SUCCESS) ProductsRepricedEvent event) {
+        if (event.getPrices() == null) {
+            bootstrap.rebuild(this::rebuild);
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            event.getPrices().forEach((id, price) -> {
+                remove(id);
+                if (price != null) insert(id, price);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Полная перестройка: строки читаются из БД уже отсортированными по (price, id) и добавляются в конец.
+     * Пока она идёт, isReady() возвращает false и запросы обслуживаются SQL.
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        ready = false;
+        try {
+            size = 0;
+            priceById.clear();
+            repo.scanPrices(row -> append((Long) row[0], (Float) row[1]));
+            ready = true;
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Product price index is not available, falling back to SQL", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /* Количество продуктов с ценой в [min, max] */
+    public int count(float min, float max) {
+        lock.readLock().lock();
+        try {
+            return Math.max(0, upperBound(max) - lowerBound(min));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /* id продуктов с ценой в [min, max] в порядке возрастания цены, начиная с offset, не больше limit */
+    public long[] range(float min, float max, long offset, int limit) {
+        lock.readLock().lock();
+        try {
+            long from = lowerBound(min) + Math.max(0, offset);
+            long to = Math.min(upperBound(max), from + Math.max(0, limit));
+            return from >= to ? new long[0] : Arrays.copyOfRange(ids, (int) from, (int) to);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /* id n самых дешёвых продуктов */
+    public long[] cheapest(int n) {
+        lock.readLock().lock();
+        try {
+            return Arrays.copyOf(ids, Math.max(0, Math.min(n, size)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void append(Long id, Float price) {
+        if (price == null) return;
+        ensureCapacity();
+        prices[size] = price;
+        ids[size] = id;
+        size++;
+        priceById.put(id, price);
+    }
+
+    private void insert(Long id, float price) {
+        ensureCapacity();
+        int pos = position(price, id);
+        System.arraycopy(prices, pos, prices, pos + 1, size - pos);
+        System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+        prices[pos] = price;
+        ids[pos] = id;
+        size++;
+        priceById.put(id, price);
+    }
+
+    private void remove(Long id) {
+        Float price = priceById.remove(id);
+        if (price == null) return;
+        int pos = position(price, id);
+        if (pos < size && ids[pos] == id) {
+            System.arraycopy(prices, pos + 1, prices, pos, size - pos - 1);
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+        }
+    }
+
+    private void ensureCapacity() {
+        if (size == prices.length) {
+            prices = Arrays.copyOf(prices, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+    }
+
+    /* Первая позиция с ценой >= price */
+    private int lowerBound(float price) {
+        return position(price, Long.MIN_VALUE);
+    }
+
+    /* Первая позиция с ценой > price */
+    private int upperBound(float price) {
+        return position(price, Long.MAX_VALUE);
+    }
+
+    /* Первая позиция, где (prices[i], ids[i]) >= (price, id) */
+    private int position(float price, long id) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = Float.compare(prices[mid], price);
+            if (cmp < 0 || (cmp == 0 && ids[mid] < id)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
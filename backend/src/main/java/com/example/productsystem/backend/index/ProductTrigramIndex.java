@@ -0,0 +1,201 @@
+package com.example.productsystem.backend.index;
+
+import com.example.productsystem.backend.event.ChangeType;
+import com.example.productsystem.backend.event.OrganizationChangeEvent;
+import com.example.productsystem.backend.event.PersonChangeEvent;
+import com.example.productsystem.backend.event.ProductChangeEvent;
+import com.example.productsystem.backend.repository.ProductRepository;
+import com.example.productsystem.common.ProductDTO;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+ * Триграммный инвертированный индекс для поиска подстроки в текстовых полях Product.
+ * Для каждого поля и каждой триграммы хранится отсортированный список id продуктов (IntPostingList).
+ * Поиск берёт самый короткий список среди триграмм запроса и проверяет кандидатов по сохранённым значениям,
+ * поэтому результат точный и его стоимость не зависит от размера каталога.
+ * Индекс строится при старте приложения и обновляется событиями после коммита.
+ */
+@ApplicationScoped
+public class ProductTrigramIndex {
+
+    private static final Logger LOG = Logger.getLogger(ProductTrigramIndex.class.getName());
+
+    /* Поля filterByField, которые обслуживает индекс; позиция в списке - номер поля в ключе триграммы */
+    public static final List<String> FIELDS = List.of("name", "partNumber", "manufacturer.name", "owner.name", "owner.passportID");
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, IntPostingList> postings = new HashMap<>();
+    private final Map<Integer, String[]> documents = new HashMap<>();
+    private volatile boolean ready;
+
+    @Inject
+    private ProductRepository repo;
+
+    @Inject
+    private IndexBootstrap bootstrap;
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        bootstrap.rebuild(this::rebuild);
+    }
+
+    void onProductChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) ProductChangeEvent event) {
+        if (event.getType() == ChangeType.DELETED) {
+            remove(event.getId());
+        } else {
+            put(event.getId(), valuesOf(event.getProduct()));
+        }
+    }
+
+    /* Имя владельца или паспорт могли измениться - переиндексируются его продукты */
+    void onPersonChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) PersonChangeEvent event) {
+        if (event.getType() == ChangeType.UPDATED) {
+            putRows(repo.searchFieldsByOwner(event.getId()));
+        }
+    }
+
+    void onOrganizationChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) OrganizationChangeEvent event) {
+        if (event.getType() == ChangeType.UPDATED) {
+            putRows(repo.searchFieldsByManufacturer(event.getId()));
+        }
+    }
+
+    /*
+     * Полная перестройка индекса из базы данных.
+     * Пока она идёт, search возвращает null и запросы обслуживаются SQL.
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        ready = false;
+        try {
+            postings.clear();
+            documents.clear();
+            repo.scanSearchFields(this::putRow);
+            ready = true;
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Product trigram index is not available, falling back to SQL search", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Возвращает отсортированные id продуктов, у которых поле field содержит value (без учёта регистра).
+     * Возвращает null, если индекс не может ответить: поле не индексируется, запрос короче триграммы
+     * или индекс ещё не построен. В этом случае вызывающий код использует SQL.
+     */
+    public int[] search(String field, String value) {
+        int slot = FIELDS.indexOf(field);
+        if (!ready || slot < 0 || value == null) return null;
+        String query = value.toLowerCase();
+        if (query.length() < 3) return null;
+
+        lock.readLock().lock();
+        try {
+            IntPostingList smallest = null;
+            for (int i = 0; i + 3 <= query.length(); i++) {
+                IntPostingList list = postings.get(key(slot, query, i));
+                if (list == null) return new int[0];
+                if (smallest == null || list.size() < smallest.size()) smallest = list;
+            }
+
+            int[] result = new int[smallest.size()];
+            int count = 0;
+            for (int i = 0; i < smallest.size(); i++) {
+                int id = smallest.get(i);
+                String stored = documents.get(id)[slot];
+                if (stored != null && stored.contains(query)) result[count++] = id;
+            }
+            return count == result.length ? result : Arrays.copyOf(result, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void putRows(List<Object[]> rows) {
+        lock.writeLock().lock();
+        try {
+            rows.forEach(this::putRow);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /* Строка ProductRepository.scanSearchFields: id и значения полей в порядке FIELDS */
+    private void putRow(Object[] row) {
+        String[] values = new String[FIELDS.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (String) row[i + 1];
+        }
+        put((Long) row[0], values);
+    }
+
+    private void put(Long productId, String[] values) {
+        int id = Math.toIntExact(productId);
+        lock.writeLock().lock();
+        try {
+            unindex(id);
+            String[] lowered = new String[values.length];
+            for (int slot = 0; slot < values.length; slot++) {
+                if (values[slot] == null) continue;
+                String value = values[slot].toLowerCase();
+                lowered[slot] = value;
+                for (int i = 0; i + 3 <= value.length(); i++) {
+                    postings.computeIfAbsent(key(slot, value, i), k -> new IntPostingList()).add(id);
+                }
+            }
+            documents.put(id, lowered);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            unindex(Math.toIntExact(productId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void unindex(int id) {
+        String[] old = documents.remove(id);
+        if (old == null) return;
+        for (int slot = 0; slot < old.length; slot++) {
+            if (old[slot] == null) continue;
+            for (int i = 0; i + 3 <= old[slot].length(); i++) {
+                long key = key(slot, old[slot], i);
+                IntPostingList list = postings.get(key);
+                if (list != null && list.remove(id) && list.isEmpty()) postings.remove(key);
+            }
+        }
+    }
+
+    private static String[] valuesOf(ProductDTO p) {
+        return new String[]{
+                p.getName(),
+                p.getPartNumber(),
+                p.getManufacturer() != null ? p.getManufacturer().getName() : null,
+                p.getOwner() != null ? p.getOwner().getName() : null,
+                p.getOwner() != null ? p.getOwner().getPassportID() : null
+        };
+    }
+
+    /* Номер поля и три UTF-16 символа упаковываются в один long */
+    private static long key(int slot, String s, int i) {
+        return ((long) slot << 48) | ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+}
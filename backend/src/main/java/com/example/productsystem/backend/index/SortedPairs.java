@@ -0,0 +1,89 @@
+package com.example.productsystem.backend.index;
+
+import java.util.Arrays;
+
+/*
+ * Пары (key, id), упорядоченные по key, затем по id, на параллельных массивах long[] keys и int[] ids.
+ * Позиция пары, ранг и границы диапазона ключей находятся бинарным поиском, страница - копированием отрезка.
+ * Вставка и удаление сдвигают хвост массивов. Синхронизация - на стороне владельца.
+ */
+public final class SortedPairs {
+
+    private long[] keys = new long[1024];
+    private int[] ids = new int[1024];
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public long key(int pos) {
+        return keys[pos];
+    }
+
+    public int id(int pos) {
+        return ids[pos];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void insert(long key, int id) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        int pos = position(key, id);
+        System.arraycopy(keys, pos, keys, pos + 1, size - pos);
+        System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+        keys[pos] = key;
+        ids[pos] = id;
+        size++;
+    }
+
+    public boolean remove(long key, int id) {
+        int pos = position(key, id);
+        if (pos == size || keys[pos] != key || ids[pos] != id) return false;
+        System.arraycopy(keys, pos + 1, keys, pos, size - pos - 1);
+        System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+        size--;
+        return true;
+    }
+
+    /* Первая позиция с ключом >= key */
+    public int lowerBound(long key) {
+        return position(key, Integer.MIN_VALUE);
+    }
+
+    /* Первая позиция с ключом > key */
+    public int upperBound(long key) {
+        return key == Long.MAX_VALUE ? size : lowerBound(key + 1);
+    }
+
+    /* id позиций [from, to) по возрастанию; при reverse - позиции считаются с конца, по убыванию */
+    public int[] ids(int from, int to, boolean reverse) {
+        from = Math.max(0, from);
+        to = Math.min(size, to);
+        if (from >= to) return new int[0];
+        if (!reverse) return Arrays.copyOfRange(ids, from, to);
+        int[] result = new int[to - from];
+        for (int i = 0; i < result.length; i++) result[i] = ids[size - 1 - from - i];
+        return result;
+    }
+
+    /* Первая позиция, где (keys[i], ids[i]) >= (key, id) */
+    private int position(long key, int id) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid] < key || (keys[mid] == key && ids[mid] < id)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
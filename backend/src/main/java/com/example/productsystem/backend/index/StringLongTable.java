@@ -0,0 +1,116 @@
+package com.example.productsystem.backend.index;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/*
+ * Хеш-таблица String -> long с открытой адресацией на двух массивах, без объектов-записей и упаковки значений.
+ * Удаление сдвигает следующие записи цепочки назад, поэтому "надгробий" нет и поиск не деградирует.
+ */
+public final class StringLongTable {
+
+    private String[] keys = new String[16];
+    private long[] values = new long[16];
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    /* Позиция ключа или -1 */
+    private int slotOf(String key) {
+        int mask = keys.length - 1;
+        for (int i = (int) BloomFilter.hash(key) & mask; keys[i] != null; i = (i + 1) & mask) {
+            if (keys[i].equals(key)) return i;
+        }
+        return -1;
+    }
+
+    public boolean containsKey(String key) {
+        return slotOf(key) >= 0;
+    }
+
+    /* Значение по ключу или missing, если ключа нет */
+    public long get(String key, long missing) {
+        int slot = slotOf(key);
+        return slot >= 0 ? values[slot] : missing;
+    }
+
+    public void put(String key, long value) {
+        if ((size + 1) * 4 > keys.length * 3) resize(keys.length * 2);
+        int mask = keys.length - 1;
+        int i = (int) BloomFilter.hash(key) & mask;
+        while (keys[i] != null) {
+            if (keys[i].equals(key)) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+    }
+
+    public boolean remove(String key) {
+        int slot = slotOf(key);
+        if (slot < 0) return false;
+        removeSlot(slot);
+        return true;
+    }
+
+    /* Удаляет ключ, только если он указывает на expected */
+    public boolean remove(String key, long expected) {
+        int slot = slotOf(key);
+        if (slot < 0 || values[slot] != expected) return false;
+        removeSlot(slot);
+        return true;
+    }
+
+    private void removeSlot(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        for (int i = (hole + 1) & mask; keys[i] != null; i = (i + 1) & mask) {
+            int home = (int) BloomFilter.hash(keys[i]) & mask;
+            // запись можно перенести в дыру, если её домашняя позиция не лежит между дырой и текущей позицией
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        keys[hole] = null;
+        size--;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, null);
+        size = 0;
+    }
+
+    public void forEach(BiConsumer<String, Long> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) action.accept(keys[i], values[i]);
+        }
+    }
+
+    public String[] keys() {
+        String[] result = new String[size];
+        int n = 0;
+        for (String k : keys) {
+            if (k != null) result[n++] = k;
+        }
+        return result;
+    }
+
+    private void resize(int capacity) {
+        String[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new String[capacity];
+        values = new long[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) put(oldKeys[i], oldValues[i]);
+        }
+    }
+}
@@ -22,6 +22,7 @@ public class ProductMapper {
         dto.setCoordinates(CoordinatesMapper.toDTO(entity.getCoordinates()));
         dto.setManufacturer(OrganizationMapper.toDTO(entity.getManufacturer()));
         dto.setOwner(PersonMapper.toDTO(entity.getOwner()));
+        dto.setVersion(entity.getVersion());
         return dto;
     }
 
@@ -38,6 +39,7 @@ public class ProductMapper {
         entity.setCoordinates(CoordinatesMapper.toEntity(dto.getCoordinates()));
         entity.setManufacturer(OrganizationMapper.toEntity(dto.getManufacturer()));
         entity.setOwner(PersonMapper.toEntity(dto.getOwner()));
+        entity.setVersion(dto.getVersion());
         return entity;
     }
 }
@@ -7,6 +7,7 @@ import jakarta.persistence.*;
 import jakarta.persistence.criteria.*;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -44,6 +45,18 @@ public class CoordinatesRepository {
                 .getResultList();
     }
 
+    /*
+     * Кандидаты для набора пар (x, y): JPQL не поддерживает IN по кортежам,
+     * поэтому выбираются строки с x и y из наборов, а точные пары отбирает вызывающий код.
+     */
+    public List<Coordinates> findByXInAndYIn(Collection<Integer> xs, Collection<Double> ys) {
+        if (xs.isEmpty() || ys.isEmpty()) return new ArrayList<>();
+        return em.createQuery("SELECT c FROM Coordinates c WHERE c.x IN :xs AND c.y IN :ys", Coordinates.class)
+                .setParameter("xs", xs)
+                .setParameter("ys", ys)
+                .getResultList();
+    }
+
     public void delete(Long id) {
         Coordinates coordinates = find(id);
         if (coordinates != null) {
@@ -0,0 +1,87 @@
+package com.example.productsystem.backend.repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Objects;
+
+/*
+ * Курсор для keyset (seek) пагинации.
+ * Хранит поле сортировки, направление, значение ключа сортировки и id последней строки страницы.
+ * Для клиента курсор непрозрачен: он кодируется в base64url и передаётся обратно как есть.
+ */
+public final class KeysetCursor {
+
+    private final String sortField;
+    private final boolean asc;
+    private final String key;
+    private final long id;
+
+    public KeysetCursor(String sortField, boolean asc, String key, long id) {
+        this.sortField = sortField;
+        this.asc = asc;
+        this.key = key;
+        this.id = id;
+    }
+
+    public String getSortField() {
+        return sortField;
+    }
+
+    public boolean isAsc() {
+        return asc;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /*
+     * Проверяет, что курсор был выдан для того же поля и направления сортировки.
+     */
+    public boolean matches(String sortField, boolean asc) {
+        return this.asc == asc && Objects.equals(this.sortField, sortField);
+    }
+
+    public String encode() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeBoolean(sortField != null);
+            if (sortField != null) out.writeUTF(sortField);
+            out.writeBoolean(asc);
+            out.writeBoolean(key != null);
+            if (key != null) out.writeUTF(key);
+            out.writeLong(id);
+            out.flush();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /*
+     * Декодирует курсор, полученный от клиента.
+     * Пустая строка означает первую страницу и возвращает null.
+     */
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.isBlank()) return null;
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token.trim())));
+            String sortField = in.readBoolean() ? in.readUTF() : null;
+            boolean asc = in.readBoolean();
+            String key = in.readBoolean() ? in.readUTF() : null;
+            long id = in.readLong();
+            return new KeysetCursor(sortField, asc, key, id);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.productsystem.backend.repository;
+
+import java.util.List;
+
+/*
+ * Страница keyset-пагинации: строки страницы и курсор следующей страницы.
+ * Курсор равен null, если строк больше нет.
+ */
+public class KeysetPage<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    public KeysetPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
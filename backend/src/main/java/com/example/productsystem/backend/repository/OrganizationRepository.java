@@ -4,6 +4,7 @@ import com.example.productsystem.backend.entity.Address;
 import com.example.productsystem.backend.entity.Organization;
 import com.example.productsystem.common.OrganizationType;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.EntityGraph;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
@@ -12,8 +13,15 @@ import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Root;
 import jakarta.transaction.Transactional;
+import org.hibernate.jpa.HibernateHints;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /*
  * Репозиторий для управления сущностями Organization.
@@ -22,6 +30,9 @@ import java.util.List;
 @ApplicationScoped
 public class OrganizationRepository {
 
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final String FETCH_GRAPH = "jakarta.persistence.fetchgraph";
+
     @PersistenceContext(unitName = "ProductPU")
     private EntityManager em;
 
@@ -31,7 +42,7 @@ public class OrganizationRepository {
     }
 
     public Organization find(Integer id) {
-        return em.find(Organization.class, id);
+        return em.find(Organization.class, id, Map.of(FETCH_GRAPH, dtoGraph()));
     }
 
     public Organization update(Organization org) {
@@ -42,15 +53,49 @@ public class OrganizationRepository {
         if (org != null) em.remove(em.contains(org) ? org : em.merge(org));
     }
 
+    /* Поиск подстроки в имени для /organizations/search; при записи Product не используется */
     public List<Organization> findByName(String name) {
-        return em.createQuery("SELECT o FROM Organization o WHERE LOWER(o.name) LIKE LOWER(:name)", Organization.class)
+        return withDtoGraph(em.createQuery("SELECT o FROM Organization o WHERE LOWER(o.name) LIKE LOWER(:name)", Organization.class))
                 .setParameter("name", "%" + name + "%")
                 .getResultList();
     }
 
+    public List<Organization> findByIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) return new ArrayList<>();
+        return withDtoGraph(em.createQuery("SELECT o FROM Organization o WHERE o.id IN :ids", Organization.class))
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    /* Точное совпадение по уникальному normalizedName; names уже нормализованы Organization.normalizeName */
+    public List<Organization> findByNormalizedNames(Collection<String> names) {
+        if (names.isEmpty()) return new ArrayList<>();
+        return withDtoGraph(em.createQuery("SELECT o FROM Organization o WHERE o.normalizedName IN :names", Organization.class))
+                .setParameter("names", names)
+                .getResultList();
+    }
+
+    public Optional<Organization> findByNormalizedName(String name) {
+        return withDtoGraph(em.createQuery("SELECT o FROM Organization o WHERE o.normalizedName = :name", Organization.class))
+                .setParameter("name", name)
+                .getResultStream()
+                .findFirst();
+    }
+
+    /* Пары (id, normalizedName) для OrganizationNameIndex */
+    public void scanNormalizedNames(Consumer<Object[]> consumer) {
+        try (Stream<Object[]> rows = em.createQuery("SELECT o.id, o.normalizedName FROM Organization o", Object[].class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .getResultStream()) {
+            rows.forEach(consumer);
+        }
+    }
+
     public List<Organization> findByType(OrganizationType type) {
-        return em.createQuery("SELECT o FROM Organization o WHERE o.type = :type", Organization.class)
+        return withDtoGraph(em.createQuery("SELECT o FROM Organization o WHERE o.type = :type", Organization.class))
                 .setParameter("type", type)
+                .setHint(HibernateHints.HINT_CACHEABLE, true)
+                .setHint(HibernateHints.HINT_CACHE_REGION, "query-organizations-byType")
                 .getResultList();
     }
 
@@ -64,15 +109,17 @@ public class OrganizationRepository {
             cq.orderBy(asc ? cb.asc(path) : cb.desc(path));
         }
 
-        TypedQuery<Organization> q = em.createQuery(cq);
+        TypedQuery<Organization> q = withDtoGraph(em.createQuery(cq));
         q.setFirstResult(page * size);
         q.setMaxResults(size);
         return q.getResultList();
     }
 
+    /* Равные обороты упорядочены по id в том же направлении, как в OrganizationTurnoverIndex */
     public List<Organization> sortByTurnover(int page, int size, boolean ascending) {
-        String query = "SELECT o FROM Organization o ORDER BY o.annualTurnover " + (ascending ? "ASC" : "DESC");
-        return em.createQuery(query, Organization.class)
+        String direction = ascending ? "ASC" : "DESC";
+        String query = "SELECT o FROM Organization o ORDER BY o.annualTurnover " + direction + ", o.id " + direction;
+        return withDtoGraph(em.createQuery(query, Organization.class))
                 .setFirstResult(page * size)
                 .setMaxResults(size)
                 .getResultList();
@@ -97,8 +144,10 @@ public class OrganizationRepository {
         }
     }
 
+    /* Порядок (employeesCount, id) совпадает с OrganizationEmployeesIndex */
     public List<Organization> filterByEmployeeRange(int minEmployees, int maxEmployees, int page, int size) {
-        return em.createQuery("SELECT o FROM Organization o WHERE o.employeesCount BETWEEN :min AND :max", Organization.class)
+        return withDtoGraph(em.createQuery("SELECT o FROM Organization o WHERE o.employeesCount BETWEEN :min AND :max"
+                        + " ORDER BY o.employeesCount, o.id", Organization.class))
                 .setParameter("min", minEmployees)
                 .setParameter("max", maxEmployees)
                 .setFirstResult(page * size)
@@ -106,15 +155,75 @@ public class OrganizationRepository {
                 .getResultList();
     }
 
+    public Long countByEmployeeRange(int minEmployees, int maxEmployees) {
+        return em.createQuery("SELECT COUNT(o) FROM Organization o WHERE o.employeesCount BETWEEN :min AND :max", Long.class)
+                .setParameter("min", minEmployees)
+                .setParameter("max", maxEmployees)
+                .getSingleResult();
+    }
+
+    /* Пары (id, employeesCount) для индекса по числу сотрудников */
+    public void scanEmployees(Consumer<Object[]> consumer) {
+        try (Stream<Object[]> rows = em.createQuery(
+                        "SELECT o.id, o.employeesCount FROM Organization o ORDER BY o.employeesCount, o.id", Object[].class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .getResultStream()) {
+            rows.forEach(consumer);
+        }
+    }
+
     public List<Organization> findByRatingGreaterThan(int rating) {
-        return em.createQuery("SELECT o FROM Organization o WHERE o.rating > :rating", Organization.class)
+        return withDtoGraph(em.createQuery("SELECT o FROM Organization o WHERE o.rating > :rating", Organization.class))
                 .setParameter("rating", rating)
                 .getResultList();
     }
 
+    /* Строки (id, type, annualTurnover, employeesCount) для агрегированных счётчиков */
+    public void scanAggregates(Consumer<Object[]> consumer) {
+        try (Stream<Object[]> rows = em.createQuery(
+                        "SELECT o.id, o.type, o.annualTurnover, o.employeesCount FROM Organization o", Object[].class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .getResultStream()) {
+            rows.forEach(consumer);
+        }
+    }
+
+    /* Пары (id, annualTurnover) для рейтинга по обороту */
+    public void scanTurnovers(Consumer<Object[]> consumer) {
+        try (Stream<Object[]> rows = em.createQuery(
+                        "SELECT o.id, o.annualTurnover FROM Organization o ORDER BY o.annualTurnover, o.id", Object[].class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .getResultStream()) {
+            rows.forEach(consumer);
+        }
+    }
+
+    public Long countByTurnoverGreaterThan(long turnover) {
+        return em.createQuery("SELECT COUNT(o) FROM Organization o WHERE o.annualTurnover > :turnover", Long.class)
+                .setParameter("turnover", turnover)
+                .getSingleResult();
+    }
+
+    public Long count() {
+        return em.createQuery("SELECT COUNT(o) FROM Organization o", Long.class).getSingleResult();
+    }
+
     public Long countByType(OrganizationType type) {
         return em.createQuery("SELECT COUNT(o) FROM Organization o WHERE o.type = :type", Long.class)
                 .setParameter("type", type)
                 .getSingleResult();
     }
-}
\ No newline at end of file
+
+    /*
+     * Оба адреса организации и их города по умолчанию EAGER и без графа догружаются отдельными select
+     * на каждую строку. Граф Organization.dto подтягивает их join'ами в том же запросе; все связи - к одной
+     * строке, поэтому LIMIT страницы остаётся в SQL и число запросов не зависит от размера страницы.
+     */
+    private <T> TypedQuery<T> withDtoGraph(TypedQuery<T> q) {
+        return q.setHint(FETCH_GRAPH, dtoGraph());
+    }
+
+    private EntityGraph<?> dtoGraph() {
+        return em.getEntityGraph(Organization.DTO_GRAPH);
+    }
+}
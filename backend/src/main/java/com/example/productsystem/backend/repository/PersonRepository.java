@@ -4,6 +4,8 @@ import com.example.productsystem.backend.entity.Location;
 import com.example.productsystem.backend.entity.Person;
 import com.example.productsystem.common.Color;
 import com.example.productsystem.common.Country;
+import com.example.productsystem.common.LocationDTO;
+import com.example.productsystem.common.PersonDTO;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
@@ -11,14 +13,24 @@ import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.*;
 import jakarta.transaction.Transactional;
+import org.hibernate.jpa.HibernateHints;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @ApplicationScoped
 public class PersonRepository {
 
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    /* Атрибуты, по которым доступны seekByAttribute и streamByAttribute */
+    private static final Set<String> FILTER_ATTRIBUTES = Set.of("nationality", "eyeColor", "hairColor");
+
     @PersistenceContext(unitName = "ProductPU")
     private EntityManager em;
 
@@ -57,8 +69,11 @@ public class PersonRepository {
 
     public Optional<Person> findByPassportID(String passportID) {
         try {
+            // результат кэшируется в query cache и сбрасывается Hibernate при изменении таблицы persons
             Person person = em.createQuery("SELECT p FROM Person p WHERE p.passportID = :passport", Person.class)
                     .setParameter("passport", passportID)
+                    .setHint(HibernateHints.HINT_CACHEABLE, true)
+                    .setHint(HibernateHints.HINT_CACHE_REGION, "query-persons-byPassportID")
                     .getSingleResult();
             return Optional.of(person);
         } catch (NoResultException ex) {
@@ -66,30 +81,132 @@ public class PersonRepository {
         }
     }
 
-    public List<Person> findByNationality(Country nationality) {
-        return em.createQuery("SELECT p FROM Person p WHERE p.nationality = :nationality", Person.class)
-                .setParameter("nationality", nationality)
+    public List<Person> findByPassportIDs(Collection<String> passportIDs) {
+        if (passportIDs.isEmpty()) return new ArrayList<>();
+        return em.createQuery("SELECT p FROM Person p WHERE p.passportID IN :passports", Person.class)
+                .setParameter("passports", passportIDs)
                 .getResultList();
     }
 
-    public List<Person> findByEyeColor(Color eyeColor) {
-        return em.createQuery("SELECT p FROM Person p WHERE p.eyeColor = :eyeColor", Person.class)
-                .setParameter("eyeColor", eyeColor)
+    /* Загрузка по списку id одним запросом; порядок результата не задан */
+    public List<Person> findByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) return new ArrayList<>();
+        return em.createQuery("SELECT p FROM Person p WHERE p.id IN :ids", Person.class)
+                .setParameter("ids", ids)
                 .getResultList();
     }
 
-    public List<Person> findByHairColor(Color hairColor) {
-        return em.createQuery("SELECT p FROM Person p WHERE p.hairColor = :hairColor", Person.class)
-                .setParameter("hairColor", hairColor)
+    /* Загрузка по списку id вместе с Location одним запросом (для пакетного изменения местоположений) */
+    public List<Person> findByIdsWithLocation(Collection<Long> ids) {
+        if (ids.isEmpty()) return new ArrayList<>();
+        return em.createQuery("SELECT p FROM Person p LEFT JOIN FETCH p.location WHERE p.id IN :ids", Person.class)
+                .setParameter("ids", ids)
                 .getResultList();
     }
 
-    public List<Person> findByName(String name) {
-        return em.createQuery("SELECT p FROM Person p WHERE LOWER(p.name) LIKE LOWER(:name)", Person.class)
+    public void flush() {
+        em.flush();
+    }
+
+    /* Строки (id, eyeColor, hairColor, nationality) по возрастанию id для построения битового индекса */
+    public void scanAttributes(Consumer<Object[]> consumer) {
+        try (Stream<Object[]> rows = em.createQuery(
+                        "SELECT p.id, p.eyeColor, p.hairColor, p.nationality FROM Person p ORDER BY p.id", Object[].class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .getResultStream()) {
+            rows.forEach(consumer);
+        }
+    }
+
+    /* Строки (id, location.x, location.y, location.z) для пространственного индекса */
+    public void scanLocations(Consumer<Object[]> consumer) {
+        try (Stream<Object[]> rows = em.createQuery(
+                        "SELECT p.id, l.x, l.y, l.z FROM Person p JOIN p.location l", Object[].class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .getResultStream()) {
+            rows.forEach(consumer);
+        }
+    }
+
+    /*
+     * Keyset-страница людей с attribute = value по возрастанию id.
+     * Курсор хранит атрибут, значение фильтра и id последней строки; курсор другого фильтра отклоняется.
+     * Location загружается тем же запросом, чтобы преобразование в DTO не делало запрос на каждую строку.
+     */
+    public KeysetPage<Person> seekByAttribute(String attribute, Enum<?> value, KeysetCursor after, int size) {
+        checkFilterAttribute(attribute);
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        if (after != null && (!after.matches(attribute, true) || !value.name().equals(after.getKey()))) {
+            throw new IllegalArgumentException("Cursor does not match filter parameters");
+        }
+        List<Person> rows = em.createQuery("SELECT p FROM Person p LEFT JOIN FETCH p.location"
+                        + " WHERE p." + attribute + " = :value AND p.id > :after ORDER BY p.id", Person.class)
+                .setParameter("value", value)
+                .setParameter("after", after != null ? after.getId() : Long.MIN_VALUE)
+                .setMaxResults(size + 1)
+                .getResultList();
+
+        if (rows.size() <= size) {
+            return new KeysetPage<>(rows, null);
+        }
+        rows = new ArrayList<>(rows.subList(0, size));
+        KeysetCursor next = new KeysetCursor(attribute, true, value.name(), rows.get(size - 1).getId());
+        return new KeysetPage<>(rows, next.encode());
+    }
+
+    /*
+     * Все люди с attribute = value по возрастанию id сразу в виде PersonDTO, без управляемых сущностей.
+     * Поток нужно закрыть; читать его можно только внутри транзакции.
+     */
+    public Stream<PersonDTO> streamByAttribute(String attribute, Enum<?> value) {
+        checkFilterAttribute(attribute);
+        return em.createQuery("SELECT p.name, p.eyeColor, p.hairColor, p.passportID, p.nationality, l.id, l.x, l.y, l.z, l.name"
+                        + " FROM Person p LEFT JOIN p.location l WHERE p." + attribute + " = :value ORDER BY p.id", Object[].class)
+                .setParameter("value", value)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .getResultStream()
+                .map(PersonRepository::toDTO);
+    }
+
+    private static void checkFilterAttribute(String attribute) {
+        if (!FILTER_ATTRIBUTES.contains(attribute)) {
+            throw new IllegalArgumentException("Unsupported filter attribute: " + attribute);
+        }
+    }
+
+    private static PersonDTO toDTO(Object[] row) {
+        PersonDTO dto = new PersonDTO();
+        dto.setName((String) row[0]);
+        dto.setEyeColor((Color) row[1]);
+        dto.setHairColor((Color) row[2]);
+        dto.setPassportID((String) row[3]);
+        dto.setNationality((Country) row[4]);
+        if (row[5] != null) {
+            dto.setLocation(new LocationDTO((Long) row[6], (Double) row[7], (Float) row[8], (String) row[9]));
+        }
+        return dto;
+    }
+
+    /* Поиск подстроки в имени; используется, пока индекс слов имени не построен, поэтому ограничен страницей */
+    public List<Person> findByName(String name, int page, int size) {
+        return em.createQuery("SELECT p FROM Person p WHERE LOWER(p.name) LIKE LOWER(:name) ORDER BY p.id", Person.class)
                 .setParameter("name", "%" + name + "%")
+                .setFirstResult(page * size)
+                .setMaxResults(size)
                 .getResultList();
     }
 
+    /* Пары (id, name) для построения индекса слов имени */
+    public void scanNames(Consumer<Object[]> consumer) {
+        try (Stream<Object[]> rows = em.createQuery("SELECT p.id, p.name FROM Person p", Object[].class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .getResultStream()) {
+            rows.forEach(consumer);
+        }
+    }
+
     public Location findLocationByPersonId(Long id) {
         Person person = find(id);
         return person != null ? person.getLocation() : null;
@@ -0,0 +1,46 @@
+package com.example.productsystem.backend.repository;
+
+import com.example.productsystem.backend.entity.PriceAdjustmentJob;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.List;
+
+/*
+ * Репозиторий для управления заданиями массового изменения цен.
+ */
+@ApplicationScoped
+public class PriceAdjustmentJobRepository {
+
+    @PersistenceContext(unitName = "ProductPU")
+    private EntityManager em;
+
+    public PriceAdjustmentJob create(PriceAdjustmentJob job) {
+        em.persist(job);
+        return job;
+    }
+
+    public PriceAdjustmentJob find(Long id) {
+        return em.find(PriceAdjustmentJob.class, id);
+    }
+
+    /* Строка задания блокируется до конца транзакции пакета, чтобы два исполнителя не обработали один пакет */
+    public PriceAdjustmentJob findForUpdate(Long id) {
+        return em.find(PriceAdjustmentJob.class, id, LockModeType.PESSIMISTIC_WRITE);
+    }
+
+    public List<PriceAdjustmentJob> findByStatus(PriceAdjustmentJob.Status status) {
+        return em.createQuery("SELECT j FROM PriceAdjustmentJob j WHERE j.status = :status ORDER BY j.id", PriceAdjustmentJob.class)
+                .setParameter("status", status)
+                .getResultList();
+    }
+
+    public List<PriceAdjustmentJob> list(int page, int size) {
+        return em.createQuery("SELECT j FROM PriceAdjustmentJob j ORDER BY j.id DESC", PriceAdjustmentJob.class)
+                .setFirstResult(page * size)
+                .setMaxResults(size)
+                .getResultList();
+    }
+}
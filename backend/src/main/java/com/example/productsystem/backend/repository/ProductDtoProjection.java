@@ -0,0 +1,129 @@
+package com.example.productsystem.backend.repository;
+
+import com.example.productsystem.backend.entity.Address;
+import com.example.productsystem.backend.entity.Coordinates;
+import com.example.productsystem.backend.entity.Location;
+import com.example.productsystem.backend.entity.Organization;
+import com.example.productsystem.backend.entity.Person;
+import com.example.productsystem.backend.entity.Product;
+import com.example.productsystem.common.AddressDTO;
+import com.example.productsystem.common.Color;
+import com.example.productsystem.common.CoordinatesDTO;
+import com.example.productsystem.common.Country;
+import com.example.productsystem.common.LocationDTO;
+import com.example.productsystem.common.OrganizationDTO;
+import com.example.productsystem.common.OrganizationType;
+import com.example.productsystem.common.PersonDTO;
+import com.example.productsystem.common.ProductDTO;
+import com.example.productsystem.common.UnitOfMeasure;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Проекция Product -> ProductDTO для read-only запросов.
+ * Выбирает через left join только те колонки, которые заполняет ProductMapper.toDTO,
+ * и собирает дерево DTO прямо из Tuple: без управляемых сущностей, снимков состояния и dirty checking.
+ */
+final class ProductDtoProjection {
+
+    private ProductDtoProjection() {
+    }
+
+    static void select(CriteriaBuilder cb, CriteriaQuery<Tuple> cq, Root<Product> root) {
+        Join<Product, Coordinates> coordinates = root.join("coordinates", JoinType.LEFT);
+        Join<Product, Organization> manufacturer = root.join("manufacturer", JoinType.LEFT);
+        Join<Organization, Address> official = manufacturer.join("officialAddress", JoinType.LEFT);
+        Join<Organization, Address> postal = manufacturer.join("postalAddress", JoinType.LEFT);
+        Join<Product, Person> owner = root.join("owner", JoinType.LEFT);
+
+        List<Selection<?>> s = new ArrayList<>();
+        add(s, root, "p", "id", "name", "partNumber", "price", "rating", "creationDate", "unitOfMeasure", "version");
+        add(s, coordinates, "c", "id", "x", "y");
+        add(s, manufacturer, "m", "id", "name", "annualTurnover", "employeesCount", "rating", "type");
+        add(s, official, "oa", "id", "zipCode");
+        add(s, official.join("town", JoinType.LEFT), "oat", "id", "x", "y", "z", "name");
+        add(s, postal, "pa", "id", "zipCode");
+        add(s, postal.join("town", JoinType.LEFT), "pat", "id", "x", "y", "z", "name");
+        add(s, owner, "o", "id", "name", "eyeColor", "hairColor", "passportID", "nationality");
+        add(s, owner.join("location", JoinType.LEFT), "ol", "id", "x", "y", "z", "name");
+        cq.select(cb.tuple(s.toArray(new Selection<?>[0])));
+    }
+
+    static ProductDTO map(Tuple t) {
+        ProductDTO dto = new ProductDTO();
+        dto.setId(t.get("p.id", Long.class));
+        dto.setName(t.get("p.name", String.class));
+        dto.setPartNumber(t.get("p.partNumber", String.class));
+        dto.setPrice(t.get("p.price", Float.class));
+        dto.setRating(intValue(t.get("p.rating")));
+        dto.setCreationDate(t.get("p.creationDate", LocalDate.class));
+        dto.setUnitOfMeasure(t.get("p.unitOfMeasure", UnitOfMeasure.class));
+        dto.setVersion(t.get("p.version", Long.class));
+        if (t.get("c.id") != null) {
+            dto.setCoordinates(new CoordinatesDTO(t.get("c.x", Integer.class), t.get("c.y", Double.class)));
+        }
+        dto.setManufacturer(organization(t));
+        dto.setOwner(person(t));
+        return dto;
+    }
+
+    private static OrganizationDTO organization(Tuple t) {
+        if (t.get("m.id") == null) return null;
+        OrganizationDTO dto = new OrganizationDTO();
+        dto.setId(t.get("m.id", Integer.class));
+        dto.setName(t.get("m.name", String.class));
+        dto.setAnnualTurnover(t.get("m.annualTurnover", Long.class));
+        dto.setEmployeesCount(intValue(t.get("m.employeesCount")));
+        dto.setRating(intValue(t.get("m.rating")));
+        dto.setType(t.get("m.type", OrganizationType.class));
+        dto.setOfficialAddress(address(t, "oa", "oat"));
+        dto.setPostalAddress(address(t, "pa", "pat"));
+        return dto;
+    }
+
+    private static AddressDTO address(Tuple t, String alias, String townAlias) {
+        if (t.get(alias + ".id") == null) return null;
+        return new AddressDTO(t.get(alias + ".zipCode", String.class), location(t, townAlias));
+    }
+
+    private static PersonDTO person(Tuple t) {
+        if (t.get("o.id") == null) return null;
+        PersonDTO dto = new PersonDTO();
+        dto.setName(t.get("o.name", String.class));
+        dto.setEyeColor(t.get("o.eyeColor", Color.class));
+        dto.setHairColor(t.get("o.hairColor", Color.class));
+        dto.setPassportID(t.get("o.passportID", String.class));
+        dto.setNationality(t.get("o.nationality", Country.class));
+        dto.setLocation(location(t, "ol"));
+        return dto;
+    }
+
+    private static LocationDTO location(Tuple t, String alias) {
+        if (t.get(alias + ".id") == null) return null;
+        return new LocationDTO(
+                ((Number) t.get(alias + ".x")).longValue(),
+                ((Number) t.get(alias + ".y")).doubleValue(),
+                ((Number) t.get(alias + ".z")).floatValue(),
+                t.get(alias + ".name", String.class));
+    }
+
+    private static int intValue(Object value) {
+        return value == null ? 0 : ((Number) value).intValue();
+    }
+
+    private static void add(List<Selection<?>> selections, From<?, ?> from, String alias, String... attributes) {
+        for (String attribute : attributes) {
+            selections.add(from.get(attribute).alias(alias + "." + attribute));
+        }
+    }
+}
@@ -3,10 +3,16 @@ package com.example.productsystem.backend.repository;
 
 
 import com.example.productsystem.backend.entity.Product;
+import com.example.productsystem.common.ProductDTO;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.persistence.*;
 import jakarta.persistence.criteria.*;
+import org.hibernate.jpa.HibernateHints;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /*
  * Репозиторий для управления сущностями Product.
@@ -14,6 +20,19 @@ import java.util.*;
  */
 @ApplicationScoped
 public class ProductRepository {
+    /* Текстовые поля для поискового индекса: id, name, partNumber, manufacturer.name, owner.name, owner.passportID */
+    private static final String SEARCH_FIELDS_QUERY =
+            "SELECT p.id, p.name, p.partNumber, m.name, o.name, o.passportID " +
+            "FROM Product p LEFT JOIN p.manufacturer m LEFT JOIN p.owner o";
+
+    /* Поля сортировки, значения которых могут быть NULL; при seek такие строки идут в конце */
+    private static final Set<String> NULLABLE_SORT_FIELDS = Set.of("partNumber");
+
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    /* Подсказка JPA для загрузки графа сущностей вместо вторичных запросов по каждой связи */
+    private static final String FETCH_GRAPH = "jakarta.persistence.fetchgraph";
+
     @PersistenceContext(unitName = "ProductPU")
     private EntityManager em;
 
@@ -23,7 +42,7 @@ public class ProductRepository {
     }
 
     public Product find(Long id) {
-        return em.find(Product.class, id);
+        return em.find(Product.class, id, Map.of(FETCH_GRAPH, dtoGraph()));
     }
 
     public Product update(Product p) {
@@ -53,7 +72,7 @@ public class ProductRepository {
             Path<?> path = root.get(sortField);
             cq.orderBy(asc ? cb.asc(path) : cb.desc(path));
         }
-        TypedQuery<Product> q = em.createQuery(cq);
+        TypedQuery<Product> q = withDtoGraph(em.createQuery(cq));
         q.setFirstResult(page * size);
         q.setMaxResults(size);
         return q.getResultList();
@@ -68,35 +87,167 @@ public class ProductRepository {
         if (priceMin != null) preds.add(cb.ge(root.get("price"), priceMin));
         if (priceMax != null) preds.add(cb.le(root.get("price"), priceMax));
         cq.where(preds.toArray(new Predicate[0]));
-        TypedQuery<Product> q = em.createQuery(cq);
+        TypedQuery<Product> q = withDtoGraph(em.createQuery(cq));
         q.setFirstResult(page * size);
         q.setMaxResults(size);
         return q.getResultList();
     }
 
+    /*
+     * Продукты с заданными id в том же порядке, что и ids (для кандидатов из индексов в памяти).
+     */
+    public List<Product> findByIds(List<Long> ids) {
+        if (ids.isEmpty()) return new ArrayList<>();
+        Map<Long, Product> byId = new HashMap<>();
+        for (Product p : withDtoGraph(em.createQuery("SELECT p FROM Product p WHERE p.id IN :ids", Product.class))
+                .setParameter("ids", ids)
+                .getResultList()) {
+            byId.put(p.getId(), p);
+        }
+        List<Product> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Product p = byId.get(id);
+            if (p != null) ordered.add(p);
+        }
+        return ordered;
+    }
+
+    /* Уже занятые partNumber из заданного набора, одним запросом на пакет импорта */
+    public Set<String> findExistingPartNumbers(Collection<String> partNumbers) {
+        if (partNumbers.isEmpty()) return new HashSet<>();
+        return new HashSet<>(em.createQuery("SELECT p.partNumber FROM Product p WHERE p.partNumber IN :pns", String.class)
+                .setParameter("pns", partNumbers)
+                .getResultList());
+    }
+
+    public void flush() {
+        em.flush();
+    }
+
+    /* Только версия строки, без загрузки графа; null, если продукта нет */
+    public Long findVersion(Long id) {
+        List<Long> versions = em.createQuery("SELECT p.version FROM Product p WHERE p.id = :id", Long.class)
+                .setParameter("id", id)
+                .getResultList();
+        return versions.isEmpty() ? null : versions.get(0);
+    }
+
     public List<String> uniquePartNumbers() {
         return em.createQuery("SELECT DISTINCT p.partNumber FROM Product p WHERE p.partNumber IS NOT NULL", String.class)
                 .getResultList();
     }
 
     public List<Product> ratingGreaterThan(int rating) {
-        return em.createQuery("SELECT p FROM Product p WHERE p.rating > :r", Product.class)
+        return withDtoGraph(em.createQuery("SELECT p FROM Product p WHERE p.rating > :r", Product.class))
                 .setParameter("r", rating)
                 .getResultList();
     }
 
     public List<Product> priceRange(Float min, Float max) {
-        return em.createQuery("SELECT p FROM Product p WHERE p.price BETWEEN :min AND :max", Product.class)
+        return withDtoGraph(em.createQuery("SELECT p FROM Product p WHERE p.price BETWEEN :min AND :max", Product.class))
                 .setParameter("min", min)
                 .setParameter("max", max)
                 .getResultList();
     }
 
-    public int increasePricePercent(int percent) {
-        int updated = em.createQuery("UPDATE Product p SET p.price = p.price * :factor")
+    public long countPriceRange(Float min, Float max) {
+        return em.createQuery("SELECT COUNT(p) FROM Product p WHERE p.price BETWEEN :min AND :max", Long.class)
+                .setParameter("min", min)
+                .setParameter("max", max)
+                .getSingleResult();
+    }
+
+    public List<ProductDTO> cheapestView(int limit) {
+        return project((cb, root) -> null, "price", true, 0, limit);
+    }
+
+    /* Пары (id, price) в порядке (price, id) для построения индекса цен */
+    public void scanPrices(Consumer<Object[]> consumer) {
+        try (Stream<Object[]> rows = em.createQuery("SELECT p.id, p.price FROM Product p ORDER BY p.price, p.id", Object[].class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .getResultStream()) {
+            rows.forEach(consumer);
+        }
+    }
+
+    /* Пары (id, partNumber) для построения индекса partNumber */
+    public void scanPartNumbers(Consumer<Object[]> consumer) {
+        try (Stream<Object[]> rows = em.createQuery("SELECT p.id, p.partNumber FROM Product p WHERE p.partNumber IS NOT NULL", Object[].class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .getResultStream()) {
+            rows.forEach(consumer);
+        }
+    }
+
+    /*
+     * Строки (id, unitOfMeasure, manufacturer.id, manufacturer.type, price, rating) для фасетов каталога
+     * с фильтрами filterByField (field, value) и filter (name, priceMin, priceMax); пустые критерии не ограничивают выборку.
+     * Читается одним курсором без сущностей, поэтому фасеты считаются за один проход по таблице.
+     */
+    public void scanFacetRows(String field, String value, String name, Float priceMin, Float priceMax,
+                              Consumer<Object[]> consumer) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        Root<Product> root = cq.from(Product.class);
+        Join<Object, Object> manufacturer = root.join("manufacturer", JoinType.LEFT);
+        List<Predicate> preds = new ArrayList<>();
+        if (field != null && value != null && !value.trim().isEmpty()) preds.add(createFilterPredicate(cb, root, field, value));
+        if (name != null) preds.add(cb.like(cb.lower(root.get("name")), "%" + name.toLowerCase() + "%"));
+        if (priceMin != null) preds.add(cb.ge(root.get("price"), priceMin));
+        if (priceMax != null) preds.add(cb.le(root.get("price"), priceMax));
+        cq.select(cb.tuple(root.get("id"), root.get("unitOfMeasure"), manufacturer.get("id"), manufacturer.get("type"),
+                root.get("price"), root.get("rating"))).where(preds.toArray(new Predicate[0]));
+        try (Stream<Tuple> rows = em.createQuery(cq)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .getResultStream()) {
+            rows.forEach(row -> consumer.accept(row.toArray()));
+        }
+    }
+
+    /*
+     * Следующий пакет задания изменения цен: до limit id продуктов больше afterId, подходящих под критерии
+     * filterByField (field, value) и filter (name, priceMin, priceMax), по возрастанию id.
+     * Пустые критерии не ограничивают выборку.
+     */
+    public List<Long> nextPriceChunk(String field, String value, String name, Float priceMin, Float priceMax,
+                                     Long afterId, int limit) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+        Root<Product> root = cq.from(Product.class);
+        List<Predicate> preds = new ArrayList<>();
+        if (field != null && value != null && !value.trim().isEmpty()) preds.add(createFilterPredicate(cb, root, field, value));
+        if (name != null) preds.add(cb.like(cb.lower(root.get("name")), "%" + name.toLowerCase() + "%"));
+        if (priceMin != null) preds.add(cb.ge(root.get("price"), priceMin));
+        if (priceMax != null) preds.add(cb.le(root.get("price"), priceMax));
+        if (afterId != null) preds.add(cb.gt(root.get("id"), afterId));
+        cq.select(root.get("id")).where(preds.toArray(new Predicate[0])).orderBy(cb.asc(root.get("id")));
+        return em.createQuery(cq).setMaxResults(limit).getResultList();
+    }
+
+    /* Умножает цену продуктов с заданными id на (1 + percent / 100); блокируются только эти строки */
+    public int increasePricePercent(List<Long> ids, int percent) {
+        if (ids.isEmpty()) return 0;
+        return em.createQuery("UPDATE Product p SET p.price = p.price * :factor, p.version = p.version + 1 WHERE p.id IN :ids")
                 .setParameter("factor", 1 + (percent / 100.0f))
+                .setParameter("ids", ids)
                 .executeUpdate();
-        return updated;
+    }
+
+    /* Текущие цены продуктов с заданными id (после increasePricePercent) для точечного обновления индексов */
+    public Map<Long, Float> findPrices(List<Long> ids) {
+        Map<Long, Float> prices = new HashMap<>();
+        if (ids.isEmpty()) return prices;
+        em.createQuery("SELECT p.id, p.price FROM Product p WHERE p.id IN :ids", Object[].class)
+                .setParameter("ids", ids)
+                .getResultList()
+                .forEach(row -> prices.put((Long) row[0], (Float) row[1]));
+        return prices;
+    }
+
+    /* Проверка имени поля до запуска задания: неизвестное поле приводит к IllegalArgumentException */
+    public void validateFilterField(String field) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        createFilterPredicate(cb, cb.createQuery(Product.class).from(Product.class), field, "");
     }
 
     public List<Product> filterByField(String field, String value, int page, int size, String sortField, boolean asc) {
@@ -116,12 +267,255 @@ public class ProductRepository {
             cq.orderBy(asc ? cb.asc(path) : cb.desc(path));
         }
 
-        TypedQuery<Product> q = em.createQuery(cq);
+        TypedQuery<Product> q = withDtoGraph(em.createQuery(cq));
         q.setFirstResult(page * size);
         q.setMaxResults(size);
         return q.getResultList();
     }
 
+    /*
+     * Read-only варианты list/filterByField/ratingGreaterThan/priceRange.
+     * Возвращают ProductDTO напрямую из проекции (см. ProductDtoProjection),
+     * не создавая управляемых сущностей в persistence context.
+     */
+    public List<ProductDTO> listView(int page, int size, String sortField, boolean asc) {
+        return project((cb, root) -> null, sortField, asc, page, size);
+    }
+
+    public List<ProductDTO> filterByFieldView(String field, String value, int page, int size, String sortField, boolean asc) {
+        if (field == null || value == null || value.trim().isEmpty()) {
+            return listView(page, size, sortField, asc);
+        }
+        return project((cb, root) -> createFilterPredicate(cb, root, field, value), sortField, asc, page, size);
+    }
+
+    public List<ProductDTO> ratingGreaterThanView(int rating) {
+        return project((cb, root) -> cb.gt(root.get("rating"), rating), null, true, 0, -1);
+    }
+
+    public List<ProductDTO> priceRangeView(Float min, Float max) {
+        return project((cb, root) -> cb.between(root.get("price"), min, max), null, true, 0, -1);
+    }
+
+    /*
+     * Проекция продуктов с заданными id, для кандидатов из поискового индекса.
+     * Без sortField строки упорядочиваются по id.
+     */
+    public List<ProductDTO> findViewsByIds(List<Long> ids, String sortField, boolean asc, int page, int size) {
+        if (ids.isEmpty()) return new ArrayList<>();
+        return project((cb, root) -> root.get("id").in(ids), sortField != null ? sortField : "id", asc, page, size);
+    }
+
+    public void scanSearchFields(Consumer<Object[]> consumer) {
+        try (Stream<Object[]> rows = em.createQuery(SEARCH_FIELDS_QUERY, Object[].class).getResultStream()) {
+            rows.forEach(consumer);
+        }
+    }
+
+    public List<Object[]> searchFieldsByOwner(Long personId) {
+        return em.createQuery(SEARCH_FIELDS_QUERY + " WHERE o.id = :id", Object[].class)
+                .setParameter("id", personId)
+                .getResultList();
+    }
+
+    public List<Object[]> searchFieldsByManufacturer(Integer organizationId) {
+        return em.createQuery(SEARCH_FIELDS_QUERY + " WHERE m.id = :id", Object[].class)
+                .setParameter("id", organizationId)
+                .getResultList();
+    }
+
+    /*
+     * Потоковые варианты ratingGreaterThan/priceRange/uniquePartNumbers для NDJSON-ответов.
+     * Строки читаются курсором JDBC порциями по STREAM_FETCH_SIZE; проекция не создаёт управляемых
+     * сущностей, поэтому persistence context не растёт и очищать его не нужно.
+     * Поток нужно закрыть, а читать его - внутри транзакции (иначе PostgreSQL игнорирует fetch size).
+     */
+    public Stream<ProductDTO> streamRatingGreaterThanView(int rating) {
+        return streamViews((cb, root) -> cb.gt(root.get("rating"), rating));
+    }
+
+    public Stream<ProductDTO> streamPriceRangeView(Float min, Float max) {
+        return streamViews((cb, root) -> cb.between(root.get("price"), min, max));
+    }
+
+    public Stream<String> streamUniquePartNumbers() {
+        return em.createQuery("SELECT DISTINCT p.partNumber FROM Product p WHERE p.partNumber IS NOT NULL", String.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .getResultStream();
+    }
+
+    private Stream<ProductDTO> streamViews(BiFunction<CriteriaBuilder, Root<Product>, Predicate> where) {
+        return em.createQuery(viewQuery(where, null, true))
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .getResultStream()
+                .map(ProductDtoProjection::map);
+    }
+
+    private CriteriaQuery<Tuple> viewQuery(BiFunction<CriteriaBuilder, Root<Product>, Predicate> where,
+                                           String sortField, boolean asc) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        Root<Product> root = cq.from(Product.class);
+        ProductDtoProjection.select(cb, cq, root);
+
+        Predicate predicate = where.apply(cb, root);
+        if (predicate != null) cq.where(predicate);
+        if (sortField != null) {
+            Path<?> path = getSortPath(root, sortField);
+            cq.orderBy(asc ? cb.asc(path) : cb.desc(path));
+        }
+        return cq;
+    }
+
+    /* size < 0 означает выборку без ограничения, как у исходных ratingGreaterThan и priceRange */
+    private List<ProductDTO> project(BiFunction<CriteriaBuilder, Root<Product>, Predicate> where,
+                                     String sortField, boolean asc, int page, int size) {
+        TypedQuery<Tuple> q = em.createQuery(viewQuery(where, sortField, asc));
+        if (size >= 0) {
+            q.setFirstResult(page * size);
+            q.setMaxResults(size);
+        }
+        List<ProductDTO> dtos = new ArrayList<>();
+        for (Tuple t : q.getResultList()) {
+            dtos.add(ProductDtoProjection.map(t));
+        }
+        return dtos;
+    }
+
+    /*
+     * Keyset (seek) пагинация для list/filterByField.
+     * Вместо OFFSET страница продолжается с условия (sortKey, id) > (lastKey, lastId),
+     * поэтому стоимость запроса не зависит от номера страницы.
+     * Условие на пару раскрывается в key > ? OR (key = ? AND id > ?), т.к. Criteria API не поддерживает row values.
+     */
+    public KeysetPage<Product> seek(String field, String value, String sortField, boolean asc, KeysetCursor after, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        if (after != null && !after.matches(sortField, asc)) {
+            throw new IllegalArgumentException("Cursor does not match sort parameters");
+        }
+
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Product> cq = cb.createQuery(Product.class);
+        Root<Product> root = cq.from(Product.class);
+        Path<Long> id = root.get("id");
+
+        List<Predicate> preds = new ArrayList<>();
+        if (field != null && value != null && !value.trim().isEmpty()) {
+            preds.add(createFilterPredicate(cb, root, field, value));
+        }
+
+        List<Order> orders = new ArrayList<>();
+        if (sortField == null) {
+            if (after != null) preds.add(asc ? cb.gt(id, after.getId()) : cb.lt(id, after.getId()));
+        } else {
+            Path<?> key = getSortPath(root, sortField);
+            boolean nullable = NULLABLE_SORT_FIELDS.contains(sortField);
+            if (after != null) preds.add(seekPredicate(cb, key, id, after, asc, nullable));
+            if (nullable) {
+                orders.add(cb.asc(cb.selectCase().when(cb.isNull(key), 1).otherwise(0)));
+            }
+            orders.add(asc ? cb.asc(key) : cb.desc(key));
+        }
+        orders.add(asc ? cb.asc(id) : cb.desc(id));
+
+        cq.where(preds.toArray(new Predicate[0]));
+        cq.orderBy(orders);
+
+        List<Product> rows = withDtoGraph(em.createQuery(cq))
+                .setMaxResults(size + 1)
+                .getResultList();
+
+        if (rows.size() <= size) {
+            return new KeysetPage<>(rows, null);
+        }
+        rows = new ArrayList<>(rows.subList(0, size));
+        Product last = rows.get(size - 1);
+        Object lastKey = sortField == null ? null : sortKeyOf(last, sortField);
+        KeysetCursor next = new KeysetCursor(sortField, asc, lastKey == null ? null : formatKey(lastKey), last.getId());
+        return new KeysetPage<>(rows, next.encode());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate seekPredicate(CriteriaBuilder cb, Path<?> key, Path<Long> id, KeysetCursor after, boolean asc, boolean nullable) {
+        Predicate idAfter = asc ? cb.gt(id, after.getId()) : cb.lt(id, after.getId());
+        if (after.getKey() == null) {
+            // NULL-ключи идут в конце, внутри группы порядок задаёт только id
+            return cb.and(cb.isNull(key), idAfter);
+        }
+
+        Expression<Comparable> k = (Expression<Comparable>) key;
+        Comparable v = parseKey(key.getJavaType(), after.getKey());
+        Predicate keyAfter = asc ? cb.greaterThan(k, v) : cb.lessThan(k, v);
+        Predicate seek = cb.or(keyAfter, cb.and(cb.equal(k, v), idAfter));
+        return nullable ? cb.or(seek, cb.isNull(key)) : seek;
+    }
+
+    private Object sortKeyOf(Product p, String sortField) {
+        switch (sortField) {
+            case "id":
+                return p.getId();
+            case "name":
+                return p.getName();
+            case "creationDate":
+                return p.getCreationDate();
+            case "unitOfMeasure":
+                return p.getUnitOfMeasure();
+            case "price":
+                return p.getPrice();
+            case "manufactureCost":
+                return p.getManufactureCost();
+            case "rating":
+                return p.getRating();
+            case "partNumber":
+                return p.getPartNumber();
+            case "manufacturer.name":
+                return p.getManufacturer().getName();
+            case "owner.name":
+                return p.getOwner().getName();
+            case "coordinates.x":
+                return p.getCoordinates().getX();
+            case "coordinates.y":
+                return p.getCoordinates().getY();
+            default:
+                throw new IllegalArgumentException("Unknown sort field: " + sortField);
+        }
+    }
+
+    private static String formatKey(Object key) {
+        return key instanceof Enum<?> ? ((Enum<?>) key).name() : key.toString();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparable parseKey(Class<?> type, String raw) {
+        try {
+            if (type == String.class) return raw;
+            if (type == Integer.class || type == int.class) return Integer.valueOf(raw);
+            if (type == Long.class || type == long.class) return Long.valueOf(raw);
+            if (type == Float.class || type == float.class) return Float.valueOf(raw);
+            if (type == Double.class || type == double.class) return Double.valueOf(raw);
+            if (type == LocalDate.class) return LocalDate.parse(raw);
+            if (type.isEnum()) return Enum.valueOf((Class<? extends Enum>) type, raw);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor key: " + raw);
+        }
+        throw new IllegalArgumentException("Unsupported sort key type: " + type.getName());
+    }
+
+    /*
+     * Все связи Product (@ManyToOne/@OneToOne) по умолчанию EAGER и без графа догружаются
+     * отдельным select на каждую строку. Граф Product.dto подтягивает их join'ами в том же запросе,
+     * поэтому число запросов на страницу не зависит от её размера.
+     */
+    private <T> TypedQuery<T> withDtoGraph(TypedQuery<T> q) {
+        return q.setHint(FETCH_GRAPH, dtoGraph());
+    }
+
+    private EntityGraph<?> dtoGraph() {
+        return em.getEntityGraph(Product.DTO_GRAPH);
+    }
+
     private Predicate createFilterPredicate(CriteriaBuilder cb, Root<Product> root, String field, String value) {
         String searchPattern = "%" + value.toLowerCase() + "%";
 
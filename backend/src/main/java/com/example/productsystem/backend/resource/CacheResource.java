@@ -0,0 +1,37 @@
+package com.example.productsystem.backend.resource;
+
+import com.example.productsystem.backend.service.CacheStatisticsService;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+/*
+ * REST ресурс для наблюдения за вторым уровнем кэша Hibernate.
+ */
+@Path("/cache")
+@Produces(MediaType.APPLICATION_JSON)
+public class CacheResource {
+
+    @Inject
+    private CacheStatisticsService cacheStatisticsService;
+
+    /*
+     * Попадания, промахи и записи: суммарно по второму уровню кэша, по кэшу запросов и по каждому региону.
+     */
+    @GET
+    @Path("/stats")
+    public Response stats() {
+        return Response.ok(cacheStatisticsService.stats()).build();
+    }
+
+    /*
+     * Очистка всех регионов и счётчиков (для замеров с холодным кэшем).
+     * При успешной очистке возвращается HTTP статус 204 No Content.
+     */
+    @DELETE
+    public Response evictAll() {
+        cacheStatisticsService.evictAll();
+        return Response.noContent().build();
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.productsystem.backend.resource;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.ws.rs.core.StreamingOutput;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/*
+ * Тело ответа в формате NDJSON: один JSON-документ на строку.
+ * Источник передаёт объекты по одному, каждый сразу сериализуется в поток ответа,
+ * поэтому расход памяти не зависит от количества строк.
+ */
+public class NdjsonOutput<T> implements StreamingOutput {
+
+    public static final String MEDIA_TYPE = "application/x-ndjson";
+
+    /*
+     * Для @Produces потоковых вариантов JSON-методов с тем же путём: при Accept с шаблоном или без Accept
+     * выигрывает JSON, NDJSON отдаётся только по явному Accept: application/x-ndjson.
+     */
+    public static final String MEDIA_TYPE_LOW_QS = MEDIA_TYPE + ";qs=0.5";
+
+    /* Как часто сбрасывать буфер клиенту, в строках */
+    private static final int FLUSH_EVERY = 256;
+
+    private static final Jsonb JSONB = JsonbBuilder.create();
+
+    private final Consumer<Consumer<T>> source;
+
+    public NdjsonOutput(Consumer<Consumer<T>> source) {
+        this.source = source;
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        int[] count = {0};
+        try {
+            source.accept(item -> {
+                try {
+                    writer.write(JSONB.toJson(item));
+                    writer.write('\n');
+                    if (++count[0] % FLUSH_EVERY == 0) writer.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+}
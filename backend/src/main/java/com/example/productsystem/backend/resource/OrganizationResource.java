@@ -2,6 +2,7 @@ package com.example.productsystem.backend.resource;
 
 import com.example.productsystem.backend.entity.Address;
 import com.example.productsystem.backend.entity.Organization;
+import com.example.productsystem.backend.index.OrganizationTurnoverIndex;
 import com.example.productsystem.backend.mapper.AddressMapper;
 import com.example.productsystem.backend.mapper.OrganizationMapper;
 import com.example.productsystem.backend.service.OrganizationService;
@@ -94,6 +95,84 @@ public class OrganizationResource {
         }
     }
 
+    /*
+     * Фильтрация организаций по числу сотрудников в диапазоне [min, max] включительно.
+     * Поддерживает параметры пагинации page (по умолчанию 0) и size (по умолчанию 20);
+     * организации упорядочены по возрастанию числа сотрудников.
+     */
+    @GET
+    @Path("/filter/by-employees")
+    public Response filterByEmployees(@QueryParam("min") @DefaultValue("0") int min,
+                                      @QueryParam("max") @DefaultValue("" + Integer.MAX_VALUE) int max,
+                                      @QueryParam("page") @DefaultValue("0") int page,
+                                      @QueryParam("size") @DefaultValue("20") int size) {
+        try {
+            List<OrganizationDTO> dtos = organizationService.filterByEmployeeRange(min, max, page, size)
+                    .stream()
+                    .map(OrganizationMapper::toDTO)
+                    .collect(Collectors.toList());
+            return Response.ok(dtos).build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity(createErrorResponse("Filter error", e.getMessage()))
+                    .build();
+        }
+    }
+
+    /*
+     * Количество организаций с числом сотрудников в диапазоне [min, max] включительно.
+     */
+    @GET
+    @Path("/filter/by-employees/count")
+    public Response countByEmployees(@QueryParam("min") @DefaultValue("0") int min,
+                                     @QueryParam("max") @DefaultValue("" + Integer.MAX_VALUE) int max) {
+        try {
+            return Response.ok(organizationService.countByEmployeeRange(min, max)).build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity(createErrorResponse("Count error", e.getMessage()))
+                    .build();
+        }
+    }
+
+    /*
+     * Агрегаты по организациям: количество, суммы и средние annualTurnover и employeesCount по type из счётчиков в памяти, без запросов к базе данных.
+     * Пока счётчики не заполнены первой сверкой после старта, возвращается 503.
+     */
+    @GET
+    @Path("/stats")
+    public Response stats() {
+        Map<String, Object> stats = organizationService.stats();
+        if (stats == null) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .entity(createErrorResponse("Not ready", "Counters are not initialized yet"))
+                    .build();
+        }
+        return Response.ok(stats).build();
+    }
+
+    /*
+     * Место организации в рейтинге по годовому обороту: 1 - наибольший оборот, равные обороты делят место.
+     * Возвращает {id, annualTurnover, rank, total} или 404, если организация не найдена.
+     */
+    @GET
+    @Path("/{id}/turnover-rank")
+    public Response turnoverRank(@PathParam("id") Integer id) {
+        try {
+            OrganizationTurnoverIndex.Rank rank = organizationService.turnoverRank(id);
+            if (rank == null) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity(createErrorResponse("Not found", "Organization not found"))
+                        .build();
+            }
+            return Response.ok(rank).build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity(createErrorResponse("Ranking error", e.getMessage()))
+                    .build();
+        }
+    }
+
     /*
      * Получение официального адреса организации по её ID.
      * Возвращает DTO адреса или ошибку, если организация или адрес не найдены.
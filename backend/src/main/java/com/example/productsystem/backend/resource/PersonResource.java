@@ -2,23 +2,41 @@ package com.example.productsystem.backend.resource;
 
 import com.example.productsystem.backend.entity.Location;
 import com.example.productsystem.backend.entity.Person;
+import com.example.productsystem.backend.index.PersonLocationIndex;
+import com.example.productsystem.backend.index.PersonNameIndex;
 import com.example.productsystem.backend.mapper.LocationMapper;
 import com.example.productsystem.backend.mapper.PersonMapper;
+import com.example.productsystem.backend.repository.KeysetCursor;
+import com.example.productsystem.backend.repository.KeysetPage;
+import com.example.productsystem.backend.service.LocationUpdateBuffer;
 import com.example.productsystem.backend.service.PersonService;
 import com.example.productsystem.common.Color;
 import com.example.productsystem.common.Country;
 import com.example.productsystem.common.LocationDTO;
 import com.example.productsystem.common.PersonDTO;
+import com.example.productsystem.common.PersonLocationDTO;
 import jakarta.inject.Inject;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.json.bind.JsonbException;
 import jakarta.persistence.PersistenceException;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.*;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /*
@@ -30,9 +48,25 @@ import java.util.stream.Collectors;
 @Consumes(MediaType.APPLICATION_JSON)
 public class PersonResource {
 
+    /* Наибольшее k для /near и наибольший размер ответа /within */
+    private static final int MAX_NEAREST = 1000;
+    private static final int MAX_WITHIN = 10000;
+
+    /* Наибольшее число подсказок /search/autocomplete и наибольшая страница поиска по имени */
+    private static final int MAX_SUGGESTIONS = 50;
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    /* Наибольшая страница фильтров по национальности и цвету; полный результат доступен только потоком NDJSON */
+    private static final int MAX_FILTER_SIZE = 1000;
+
+    private static final Jsonb JSONB = JsonbBuilder.create();
+
     @Inject
     private PersonService personService;
 
+    @Inject
+    private LocationUpdateBuffer locationUpdates;
+
     /*
      * Получение списка всех Person с поддержкой пагинации и сортировки.
      * Параметры:
@@ -173,77 +207,88 @@ public class PersonResource {
 
     /*
      * Фильтрация Person по национальности.
-     * Возвращает список PersonDTO, соответствующих заданной национальности.
-     * В случае ошибок возвращается 500.
+     * Ответ ограничен страницей по возрастанию id:
+     * - size: размер страницы (по умолчанию и не больше MAX_FILTER_SIZE)
+     * - cursor: курсор следующей страницы из заголовка X-Next-Cursor предыдущего ответа (необязательно)
+     * Возвращает список PersonDTO; заголовок X-Next-Cursor присутствует, если есть ещё строки.
+     * Некорректный курсор возвращает 400, прочие ошибки - 500.
      */
     @GET
     @Path("/filter/by-nationality/{country}")
-    public Response filterByNationality(@PathParam("country") Country country) {
-        try {
-            List<PersonDTO> dtos = personService.findByNationality(country)
-                    .stream()
-                    .map(PersonMapper::toDTO)
-                    .collect(Collectors.toList());
-            return Response.ok(dtos).build();
-        } catch (Exception e) {
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(createErrorResponse("Filter error", e.getMessage()))
-                    .build();
-        }
+    public Response filterByNationality(@PathParam("country") Country country,
+                                        @QueryParam("cursor") String cursor,
+                                        @QueryParam("size") @DefaultValue("" + MAX_FILTER_SIZE) int size) {
+        return filterPage(after -> personService.findByNationality(country, after, Math.min(size, MAX_FILTER_SIZE)), cursor);
+    }
+
+    /*
+     * Потоковый вариант для Accept: application/x-ndjson: все подходящие Person без ограничения размера,
+     * по одной JSON-строке на человека по мере чтения из БД.
+     */
+    @GET
+    @Path("/filter/by-nationality/{country}")
+    @Produces(NdjsonOutput.MEDIA_TYPE_LOW_QS)
+    public Response filterByNationalityStream(@PathParam("country") Country country) {
+        return Response.ok(new NdjsonOutput<PersonDTO>(sink -> personService.streamByNationality(country, sink))).build();
     }
 
     /*
      * Фильтрация Person по цвету глаз.
-     * Возвращает список PersonDTO, соответствующих заданному цвету глаз.
-     * В случае ошибок возвращается 500.
+     * Параметры и ответ - как у фильтра по национальности.
      */
     @GET
     @Path("/filter/by-eye-color/{color}")
-    public Response filterByEyeColor(@PathParam("color") Color eyeColor) {
-        try {
-            List<PersonDTO> dtos = personService.findByEyeColor(eyeColor)
-                    .stream()
-                    .map(PersonMapper::toDTO)
-                    .collect(Collectors.toList());
-            return Response.ok(dtos).build();
-        } catch (Exception e) {
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(createErrorResponse("Filter error", e.getMessage()))
-                    .build();
-        }
+    public Response filterByEyeColor(@PathParam("color") Color eyeColor,
+                                     @QueryParam("cursor") String cursor,
+                                     @QueryParam("size") @DefaultValue("" + MAX_FILTER_SIZE) int size) {
+        return filterPage(after -> personService.findByEyeColor(eyeColor, after, Math.min(size, MAX_FILTER_SIZE)), cursor);
+    }
+
+    /*
+     * Потоковый вариант для Accept: application/x-ndjson.
+     */
+    @GET
+    @Path("/filter/by-eye-color/{color}")
+    @Produces(NdjsonOutput.MEDIA_TYPE_LOW_QS)
+    public Response filterByEyeColorStream(@PathParam("color") Color eyeColor) {
+        return Response.ok(new NdjsonOutput<PersonDTO>(sink -> personService.streamByEyeColor(eyeColor, sink))).build();
     }
 
     /*
      * Фильтрация Person по цвету волос.
-     * Возвращает список PersonDTO, соответствующих заданному цвету волос.
-     * В случае ошибок возвращается 500.
+     * Параметры и ответ - как у фильтра по национальности.
      */
     @GET
     @Path("/filter/by-hair-color/{color}")
-    public Response filterByHairColor(@PathParam("color") Color hairColor) {
-        try {
-            List<PersonDTO> dtos = personService.findByHairColor(hairColor)
-                    .stream()
-                    .map(PersonMapper::toDTO)
-                    .collect(Collectors.toList());
-            return Response.ok(dtos).build();
-        } catch (Exception e) {
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(createErrorResponse("Filter error", e.getMessage()))
-                    .build();
-        }
+    public Response filterByHairColor(@PathParam("color") Color hairColor,
+                                      @QueryParam("cursor") String cursor,
+                                      @QueryParam("size") @DefaultValue("" + MAX_FILTER_SIZE) int size) {
+        return filterPage(after -> personService.findByHairColor(hairColor, after, Math.min(size, MAX_FILTER_SIZE)), cursor);
     }
 
     /*
-     * Поиск Person по имени.
-     * Возвращает список PersonDTO, соответствующих заданному имени.
-     * В случае ошибок возвращается 500.
+     * Потоковый вариант для Accept: application/x-ndjson.
+     */
+    @GET
+    @Path("/filter/by-hair-color/{color}")
+    @Produces(NdjsonOutput.MEDIA_TYPE_LOW_QS)
+    public Response filterByHairColorStream(@PathParam("color") Color hairColor) {
+        return Response.ok(new NdjsonOutput<PersonDTO>(sink -> personService.streamByHairColor(hairColor, sink))).build();
+    }
+
+    /*
+     * Поиск Person по словам имени без учёта регистра и диакритики.
+     * Каждое слово запроса сопоставляется с началом слова имени; полные совпадения слов идут первыми.
+     * Параметры запроса: page (по умолчанию 0) и size (по умолчанию 20).
+     * Возвращает страницу списка PersonDTO. В случае ошибок возвращается 500.
      */
     @GET
     @Path("/search/by-name/{name}")
-    public Response searchByName(@PathParam("name") String name) {
+    public Response searchByName(@PathParam("name") String name,
+                                 @QueryParam("page") @DefaultValue("0") int page,
+                                 @QueryParam("size") @DefaultValue("20") int size) {
         try {
-            List<PersonDTO> dtos = personService.findByName(name)
+            List<PersonDTO> dtos = personService.findByName(name, Math.max(0, page), Math.max(1, Math.min(MAX_PAGE_SIZE, size)))
                     .stream()
                     .map(PersonMapper::toDTO)
                     .collect(Collectors.toList());
@@ -255,6 +300,28 @@ public class PersonResource {
         }
     }
 
+    /*
+     * Подсказки при вводе имени: лучшие совпадения по словам имени.
+     * Параметры запроса: q (обязательно) и limit (1..50, по умолчанию 10).
+     * Возвращает список {id, name}; сами Person не загружаются.
+     */
+    @GET
+    @Path("/search/autocomplete")
+    public Response autocomplete(@QueryParam("q") String q,
+                                 @QueryParam("limit") @DefaultValue("10") int limit) {
+        if (q == null || q.isBlank()) {
+            return Response.ok(new ArrayList<>()).build();
+        }
+        List<Map<String, Object>> suggestions = new ArrayList<>();
+        for (PersonNameIndex.Match m : personService.autocomplete(q, Math.max(1, Math.min(MAX_SUGGESTIONS, limit)))) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("id", m.getId());
+            entry.put("name", m.getName());
+            suggestions.add(entry);
+        }
+        return Response.ok(suggestions).build();
+    }
+
     /*
      * Получение Location, связанного с Person по ID Person.
      * Если Person или Location не найдены, возвращается 404.
@@ -300,6 +367,87 @@ public class PersonResource {
     }
 
 
+    /*
+     * Пакетное изменение местоположений: JSON-массив {personId, location}.
+     * Обновления ставятся в очередь LocationUpdateBuffer и применяются асинхронно пакетами;
+     * несколько обновлений одного человека до сброса схлопываются в последнее.
+     * Возвращает HTTP статус 202 со сводкой (accepted, rejected, invalid);
+     * rejected - не принятые из-за переполнения буфера, их нужно отправить повторно.
+     */
+    @POST
+    @Path("/locations")
+    public Response updateLocations(List<PersonLocationDTO> updates) {
+        if (updates == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(createErrorResponse("Invalid request", "Request body must be a JSON array"))
+                    .build();
+        }
+        LocationBatch batch = new LocationBatch();
+        updates.forEach(batch::offer);
+        return batch.response();
+    }
+
+    /*
+     * Пакетное изменение местоположений из NDJSON (один {personId, location} на строку).
+     * Тело читается потоково, поэтому одно долгое соединение может передавать обновления непрерывно.
+     */
+    @POST
+    @Path("/locations")
+    @Consumes(NdjsonOutput.MEDIA_TYPE)
+    public Response updateLocationsNdjson(InputStream body) {
+        LocationBatch batch = new LocationBatch();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                try {
+                    batch.offer(JSONB.fromJson(line, PersonLocationDTO.class));
+                } catch (JsonbException e) {
+                    batch.invalid++;
+                }
+            }
+        } catch (IOException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(createErrorResponse("Invalid request", e.getMessage()))
+                    .build();
+        }
+        return batch.response();
+    }
+
+    /*
+     * Состояние буфера пакетных обновлений местоположения: ожидающие, схлопнутые, применённые и ошибки.
+     */
+    @GET
+    @Path("/locations/stats")
+    public Response locationUpdateStats() {
+        return Response.ok(locationUpdates.stats()).build();
+    }
+
+    /* Сводка одного запроса пакетного изменения местоположений */
+    private class LocationBatch {
+        private int accepted;
+        private int rejected;
+        private int invalid;
+
+        void offer(PersonLocationDTO update) {
+            if (update == null || update.getPersonId() == null || update.getLocation() == null) {
+                invalid++;
+            } else if (locationUpdates.offer(update.getPersonId(), LocationMapper.toEntity(update.getLocation()))) {
+                accepted++;
+            } else {
+                rejected++;
+            }
+        }
+
+        Response response() {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("accepted", accepted);
+            summary.put("rejected", rejected);
+            summary.put("invalid", invalid);
+            return Response.accepted(summary).build();
+        }
+    }
+
     /*
     * Фильтрация Person по нескольким критериям: цвет глаз, цвет волос, национальность.
     * Параметры запроса: eyeColor, hairColor
@@ -325,8 +473,132 @@ public class PersonResource {
         }
     }
 
+    /*
+     * Агрегаты по людям: количество по nationality, eyeColor и hairColor из счётчиков в памяти, без запросов к базе данных.
+     * Пока счётчики не заполнены первой сверкой после старта, возвращается 503.
+     */
+    @GET
+    @Path("/stats")
+    public Response stats() {
+        Map<String, Object> stats = personService.stats();
+        if (stats == null) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .entity(createErrorResponse("Not ready", "Counters are not initialized yet"))
+                    .build();
+        }
+        return Response.ok(stats).build();
+    }
 
 
+
+    /*
+     * k ближайших к точке (x, y, z) людей по евклидову расстоянию между местоположениями.
+     * Параметры запроса: x, y, z (обязательно), k (1..1000, по умолчанию 10).
+     * Возвращает список {id, distance, person} от ближнего к дальнему.
+     */
+    @GET
+    @Path("/near")
+    public Response near(@QueryParam("x") Double x,
+                         @QueryParam("y") Double y,
+                         @QueryParam("z") Double z,
+                         @QueryParam("k") @DefaultValue("10") int k) {
+        if (x == null || y == null || z == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(createErrorResponse("Invalid request", "x, y and z are required"))
+                    .build();
+        }
+        PersonLocationIndex.Hit[] hits = personService.nearest(x, y, z, Math.max(1, Math.min(MAX_NEAREST, k)));
+        if (hits == null) {
+            return locationIndexNotReady();
+        }
+        long[] ids = new long[hits.length];
+        for (int i = 0; i < hits.length; i++) ids[i] = hits[i].getId();
+        Map<Long, Person> persons = new HashMap<>();
+        for (Person p : personService.findByIds(ids)) persons.put(p.getId(), p);
+        List<Map<String, Object>> result = new ArrayList<>(hits.length);
+        for (PersonLocationIndex.Hit hit : hits) {
+            Person p = persons.get(hit.getId());
+            if (p == null) continue;
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("id", hit.getId());
+            entry.put("distance", hit.getDistance());
+            entry.put("person", PersonMapper.toDTO(p));
+            result.add(entry);
+        }
+        return Response.ok(result).build();
+    }
+
+    /*
+     * Люди, чьё местоположение лежит внутри параллелепипеда.
+     * Параметры запроса:
+     * - box: minX,minY,minZ,maxX,maxY,maxZ (обязательно)
+     * - limit: наибольшее число строк в ответе (1..10000, по умолчанию 1000)
+     * Возвращает {total, persons: [{id, person}]}; total - полное количество найденных, даже если ответ обрезан.
+     */
+    @GET
+    @Path("/within")
+    public Response within(@QueryParam("box") String box,
+                           @QueryParam("limit") @DefaultValue("1000") int limit) {
+        double[] min = new double[3];
+        double[] max = new double[3];
+        try {
+            String[] parts = box != null ? box.split(",") : new String[0];
+            if (parts.length != 6) throw new NumberFormatException("box must be minX,minY,minZ,maxX,maxY,maxZ");
+            for (int a = 0; a < 3; a++) {
+                min[a] = Double.parseDouble(parts[a].trim());
+                max[a] = Double.parseDouble(parts[a + 3].trim());
+            }
+        } catch (NumberFormatException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(createErrorResponse("Invalid request", e.getMessage()))
+                    .build();
+        }
+        long[] total = new long[1];
+        long[] ids = personService.within(min, max, Math.max(1, Math.min(MAX_WITHIN, limit)), total);
+        if (ids == null) {
+            return locationIndexNotReady();
+        }
+        List<Map<String, Object>> persons = new ArrayList<>(ids.length);
+        for (Person p : personService.findByIds(ids)) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("id", p.getId());
+            entry.put("person", PersonMapper.toDTO(p));
+            persons.add(entry);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("total", total[0]);
+        result.put("persons", persons);
+        return Response.ok(result).build();
+    }
+
+    /*
+     * Общая часть постраничных фильтров: декодирует курсор, отдаёт страницу и курсор следующей в заголовке.
+     * Некорректный или чужой курсор возвращает HTTP статус 400.
+     */
+    private Response filterPage(Function<KeysetCursor, KeysetPage<Person>> query, String cursor) {
+        try {
+            KeysetPage<Person> page = query.apply(KeysetCursor.decode(cursor));
+            List<PersonDTO> dtos = page.getItems().stream().map(PersonMapper::toDTO).collect(Collectors.toList());
+            Response.ResponseBuilder rb = Response.ok(dtos);
+            if (page.getNextCursor() != null) rb.header(ProductResource.NEXT_CURSOR_HEADER, page.getNextCursor());
+            return rb.build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(createErrorResponse("Invalid request", e.getMessage()))
+                    .build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity(createErrorResponse("Filter error", e.getMessage()))
+                    .build();
+        }
+    }
+
+    private Response locationIndexNotReady() {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .entity(createErrorResponse("Not ready", "Location index is not built yet"))
+                .build();
+    }
+
     /*
      * Удаление Person по passportID.
      * Если Person с указанным passportID не найден, возвращается 404.
@@ -0,0 +1,64 @@
+package com.example.productsystem.backend.resource;
+
+import com.example.productsystem.backend.event.AddressChangeEvent;
+import com.example.productsystem.backend.event.ChangeType;
+import com.example.productsystem.backend.event.CoordinatesChangeEvent;
+import com.example.productsystem.backend.event.OrganizationChangeEvent;
+import com.example.productsystem.backend.event.PersonChangeEvent;
+import com.example.productsystem.backend.event.PersonLocationsChangedEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.ws.rs.core.EntityTag;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/*
+ * ETag для ответов ProductResource.
+ * Продукт: сильный тег из id и @Version строки. Страница: слабый тег из хеша пар (id, version) в порядке строк.
+ * В ProductDTO входят владелец, производитель и координаты, версии которых не отслеживаются,
+ * поэтому к тегу добавляется поколение связанных данных: оно увеличивается после коммита любого изменения
+ * Person (в том числе пакета местоположений), Organization, Address или Coordinates. Начальное значение - время запуска, чтобы теги не пережили рестарт.
+ */
+@ApplicationScoped
+public class ProductEntityTags {
+
+    private final AtomicLong generation = new AtomicLong(System.currentTimeMillis());
+
+    public EntityTag of(Long id, Long version) {
+        return new EntityTag(id + "." + version + "." + generation.get());
+    }
+
+    public <T> EntityTag ofPage(List<T> rows, Function<T, Long> id, Function<T, Long> version) {
+        long h = 0xcbf29ce484222325L ^ generation.get();
+        for (T row : rows) {
+            h = (h ^ id.apply(row)) * 0x100000001b3L;
+            Long v = version.apply(row);
+            h = (h ^ (v != null ? v : -1)) * 0x100000001b3L;
+        }
+        return new EntityTag(rows.size() + "-" + Long.toHexString(h), true);
+    }
+
+    void onPersonChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) PersonChangeEvent event) {
+        if (event.getType() != ChangeType.CREATED) generation.incrementAndGet();
+    }
+
+    /* Местоположение владельца входит в ProductDTO; пакет изменений увеличивает поколение один раз */
+    void onLocationsChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) PersonLocationsChangedEvent event) {
+        generation.incrementAndGet();
+    }
+
+    void onOrganizationChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) OrganizationChangeEvent event) {
+        if (event.getType() != ChangeType.CREATED) generation.incrementAndGet();
+    }
+
+    void onAddressChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) AddressChangeEvent event) {
+        if (event.getType() != ChangeType.CREATED) generation.incrementAndGet();
+    }
+
+    void onCoordinatesChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) CoordinatesChangeEvent event) {
+        if (event.getType() != ChangeType.CREATED) generation.incrementAndGet();
+    }
+}
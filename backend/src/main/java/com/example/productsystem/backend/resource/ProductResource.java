@@ -1,18 +1,36 @@
 package com.example.productsystem.backend.resource;
 
+import com.example.productsystem.backend.cache.RelatedEntityCache;
+import com.example.productsystem.backend.entity.PriceAdjustmentJob;
 import com.example.productsystem.backend.entity.Product;
+import com.example.productsystem.backend.event.ProductChangeFeed;
 import com.example.productsystem.backend.mapper.ProductMapper;
+import com.example.productsystem.backend.repository.KeysetCursor;
+import com.example.productsystem.backend.repository.KeysetPage;
+import com.example.productsystem.backend.service.PriceAdjustmentJobRunner;
+import com.example.productsystem.backend.service.PriceAdjustmentService;
 import com.example.productsystem.backend.service.ProductService;
 import com.example.productsystem.common.ProductDTO;
 import jakarta.inject.Inject;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.json.bind.JsonbException;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.persistence.PersistenceException;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.*;
 import jakarta.ws.rs.sse.*;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -27,9 +45,35 @@ import java.util.stream.Collectors;
 @Consumes(MediaType.APPLICATION_JSON)
 public class ProductResource {
 
+    /* Заголовок с курсором следующей страницы в режиме keyset-пагинации */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /* Границы размера пакета массового импорта */
+    private static final int MAX_CHUNK_SIZE = 5000;
+
+    /* Наибольшее число интервалов гистограммы в /facets */
+    private static final int MAX_FACET_BUCKETS = 100;
+
+    private static final Jsonb JSONB = JsonbBuilder.create();
+
     @Inject
     private ProductService productService;
 
+    @Inject
+    private ProductChangeFeed changeFeed;
+
+    @Inject
+    private PriceAdjustmentService priceAdjustmentService;
+
+    @Inject
+    private PriceAdjustmentJobRunner priceAdjustmentRunner;
+
+    @Inject
+    private RelatedEntityCache lookupCache;
+
+    @Inject
+    private ProductEntityTags etags;
+
 
     /*
      * Создание нового продукта.
@@ -58,6 +102,53 @@ public class ProductResource {
         }
     }
 
+    /*
+     * Массовый импорт продуктов из JSON-массива.
+     * Строки сохраняются пакетами по chunkSize (по умолчанию 500), каждый пакет - отдельная транзакция,
+     * поэтому ошибка в одном пакете не откатывает уже загруженные.
+     * Возвращает сводку (total, created, failed) и результат по каждой строке с её индексом во входных данных.
+     */
+    @POST
+    @Path("/bulk")
+    public Response bulkImport(List<ProductDTO> dtos, @QueryParam("chunkSize") @DefaultValue("500") int chunkSize) {
+        if (dtos == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(createErrorResponse("Invalid request", "Request body must be a JSON array"))
+                    .build();
+        }
+        BulkImport importer = new BulkImport(chunkSize);
+        dtos.forEach(importer::add);
+        return Response.ok(importer.finish()).build();
+    }
+
+    /*
+     * Массовый импорт продуктов из NDJSON (один ProductDTO на строку).
+     * Тело читается потоково, в памяти держится только текущий пакет.
+     * Строка, которую не удалось разобрать, отмечается как FAILED и не прерывает импорт.
+     */
+    @POST
+    @Path("/bulk")
+    @Consumes(NdjsonOutput.MEDIA_TYPE)
+    public Response bulkImportNdjson(InputStream body, @QueryParam("chunkSize") @DefaultValue("500") int chunkSize) {
+        BulkImport importer = new BulkImport(chunkSize);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                try {
+                    importer.add(JSONB.fromJson(line, ProductDTO.class));
+                } catch (JsonbException e) {
+                    importer.reject("Malformed line: " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(createErrorResponse("Invalid request", e.getMessage()))
+                    .build();
+        }
+        return Response.ok(importer.finish()).build();
+    }
+
     /*
      * Получение списка продуктов с поддержкой пагинации и сортировки.
      * Параметры запроса:
@@ -65,57 +156,93 @@ public class ProductResource {
      * - size: размер страницы (по умолчанию 20)
      * - field: поле для сортировки (необязательно)
      * - order: порядок сортировки (asc или desc, по умолчанию asc)
+     * - cursor: курсор keyset-пагинации (необязательно, пустое значение - первая страница);
+     *   если задан, page игнорируется, а курсор следующей страницы возвращается в заголовке X-Next-Cursor
+     * Ответ содержит слабый ETag страницы; при совпадении с If-None-Match возвращается HTTP статус 304.
      */
     @GET
     public Response list(@QueryParam("page") @DefaultValue("0") int page,
                          @QueryParam("size") @DefaultValue("20") int size,
                          @QueryParam("field") String sortField,
-                         @QueryParam("order") @DefaultValue("asc") String order) {
+                         @QueryParam("order") @DefaultValue("asc") String order,
+                         @QueryParam("cursor") String cursor,
+                         @Context Request request) {
         boolean asc = !"desc".equalsIgnoreCase(order);
-        List<ProductDTO> dtos = productService.list(page, size, sortField, asc)
-                .stream().map(ProductMapper::toDTO).collect(Collectors.toList());
-        return Response.ok(dtos).build();
+        if (cursor != null) {
+            return seek(null, null, sortField, asc, cursor, size, request);
+        }
+        List<ProductDTO> dtos = productService.listView(page, size, sortField, asc);
+        return page(dtos, request);
     }
 
     /*
      * Получение продукта по его ID.
      * Если продукт с указанным ID не найден, возвращается HTTP статус 404.
+     * Ответ содержит сильный ETag; если он совпадает с If-None-Match, возвращается HTTP статус 304,
+     * при этом читается только версия строки, а продукт не загружается и не сериализуется.
      */
     @GET
     @Path("/{id}")
-    public Response get(@PathParam("id") Long id) {
+    public Response get(@PathParam("id") Long id, @Context Request request) {
+        Long version = productService.findVersion(id);
+        if (version == null) return Response.status(Response.Status.NOT_FOUND).build();
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(etags.of(id, version));
+        if (notModified != null) return notModified.build();
+
         Product p = productService.find(id);
         if (p == null) return Response.status(Response.Status.NOT_FOUND).build();
-        return Response.ok(ProductMapper.toDTO(p)).build();
+        return Response.ok(ProductMapper.toDTO(p)).tag(etags.of(id, p.getVersion())).build();
     }
 
     /*
      * Обновление существующего продукта по его ID.
      * Принимает ProductDTO в теле запроса и возвращает обновленный ProductDTO.
      * Если продукт с указанным ID не найден, возвращается HTTP статус 404.
+     * С заголовком If-Match продукт обновляется только если его ETag не изменился, иначе HTTP статус 412.
      */
     @PUT
     @Path("/{id}")
     @Transactional
-    public Response update(@PathParam("id") Long id, ProductDTO dto) {
+    public Response update(@PathParam("id") Long id, ProductDTO dto, @Context Request request) {
         Product existing = productService.find(id);
         if (existing == null) return Response.status(Response.Status.NOT_FOUND).build();
+        Response.ResponseBuilder failed = request.evaluatePreconditions(etags.of(id, existing.getVersion()));
+        if (failed != null) return failed.build();
+
         Product updated = ProductMapper.toEntity(dto);
         updated.setId(id);
-        productService.update(updated);
-        return Response.ok(ProductMapper.toDTO(updated)).build();
+        // проверенная версия: параллельное изменение между проверкой и записью даст OptimisticLockException
+        updated.setVersion(existing.getVersion());
+        try {
+            Product saved = productService.update(updated);
+            return Response.ok(ProductMapper.toDTO(saved)).tag(etags.of(id, saved.getVersion())).build();
+        } catch (OptimisticLockException e) {
+            return preconditionFailed();
+        }
     }
 
     /*
      * Удаление продукта по его ID.
-     * Если продукт с указанным ID не найден, возвращается HTTP статус 404.
-     * При успешном удалении возвращается HTTP статус 204 No Content.
+     * При успешном удалении, а также без If-Match для несуществующего продукта возвращается HTTP статус 204 No Content.
+     * С заголовком If-Match продукт удаляется только если его ETag не изменился, иначе HTTP статус 412;
+     * несуществующий продукт не может удовлетворить If-Match, поэтому для него тоже 412.
      */
     @DELETE
     @Path("/{id}")
     @Transactional
-    public Response delete(@PathParam("id") Long id) {
-        productService.delete(id);
+    public Response delete(@PathParam("id") Long id, @Context Request request,
+                           @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch) {
+        Product existing = productService.find(id);
+        if (existing == null) {
+            return ifMatch != null ? preconditionFailed("Product does not exist") : Response.noContent().build();
+        }
+        Response.ResponseBuilder failed = request.evaluatePreconditions(etags.of(id, existing.getVersion()));
+        if (failed != null) return failed.build();
+        try {
+            productService.delete(id);
+        } catch (OptimisticLockException e) {
+            return preconditionFailed();
+        }
         return Response.noContent().build();
     }
 
@@ -131,6 +258,7 @@ public class ProductResource {
      * - size: размер страницы (по умолчанию 20)
      * - sortField: поле для сортировки (необязательно)
      * - order: порядок сортировки (asc или desc, по умолчанию asc)
+     * - cursor: курсор keyset-пагинации (необязательно, см. list)
      * Возвращает список ProductDTO, соответствующих критериям фильтрации.
      */
     @GET
@@ -141,13 +269,17 @@ public class ProductResource {
             @QueryParam("page") @DefaultValue("0") int page,
             @QueryParam("size") @DefaultValue("20") int size,
             @QueryParam("sortField") String sortField,
-            @QueryParam("order") @DefaultValue("asc") String order) {
+            @QueryParam("order") @DefaultValue("asc") String order,
+            @QueryParam("cursor") String cursor,
+            @Context Request request) {
 
         boolean asc = !"desc".equalsIgnoreCase(order);
-        List<ProductDTO> dtos = productService.filterByField(field, value, page, size, sortField, asc)
-                .stream().map(ProductMapper::toDTO).collect(Collectors.toList());
+        if (cursor != null) {
+            return seek(field, value, sortField, asc, cursor, size, request);
+        }
+        List<ProductDTO> dtos = productService.filterByFieldView(field, value, page, size, sortField, asc);
 
-        return Response.ok(dtos).build();
+        return page(dtos, request);
     }
 
     /*
@@ -157,6 +289,7 @@ public class ProductResource {
      * - order: порядок сортировки (asc или desc, по умолчанию asc)
      * - page: номер страницы (по умолчанию 0)
      * - size: размер страницы (по умолчанию 20)
+     * - cursor: курсор keyset-пагинации (необязательно, см. list)
      * Возвращает список ProductDTO, отсортированных по указанному полю и порядку.
      */
     @GET
@@ -164,10 +297,28 @@ public class ProductResource {
     public Response sort(@QueryParam("field") String field,
                          @QueryParam("order") @DefaultValue("asc") String order,
                          @QueryParam("page") @DefaultValue("0") int page,
-                         @QueryParam("size") @DefaultValue("20") int size) {
+                         @QueryParam("size") @DefaultValue("20") int size,
+                         @QueryParam("cursor") String cursor,
+                         @Context Request request) {
         boolean asc = !"desc".equalsIgnoreCase(order);
-        List<ProductDTO> dtos = productService.list(page, size, field, asc).stream().map(ProductMapper::toDTO).collect(Collectors.toList());
-        return Response.ok(dtos).build();
+        if (cursor != null) {
+            return seek(null, null, field, asc, cursor, size, request);
+        }
+        List<ProductDTO> dtos = productService.listView(page, size, field, asc);
+        return page(dtos, request);
+    }
+
+    /*
+     * Получение продукта по его уникальному partNumber (HEAD - проверка существования перед вставкой).
+     * Если продукт с указанным partNumber не найден, возвращается HTTP статус 404;
+     * большинство таких ответов формируется индексом partNumber без обращения к БД.
+     */
+    @GET
+    @Path("/by-partnumber/{partNumber}")
+    public Response getByPartNumber(@PathParam("partNumber") String partNumber) {
+        return productService.findByPartNumber(partNumber)
+                .map(p -> Response.ok(ProductMapper.toDTO(p)).build())
+                .orElseGet(() -> Response.status(Response.Status.NOT_FOUND).build());
     }
 
     /*
@@ -193,10 +344,21 @@ public class ProductResource {
     @GET
     @Path("/rating-greater-than/{rating}")
     public Response ratingGreaterThan(@PathParam("rating") int rating) {
-        List<ProductDTO> dtos = productService.ratingGreaterThan(rating).stream().map(ProductMapper::toDTO).collect(Collectors.toList());
+        List<ProductDTO> dtos = productService.ratingGreaterThanView(rating);
         return Response.ok(dtos).build();
     }
 
+    /*
+     * Потоковый вариант для Accept: application/x-ndjson.
+     * Строки пишутся в ответ по мере чтения из БД, без накопления списка в памяти.
+     */
+    @GET
+    @Path("/rating-greater-than/{rating}")
+    @Produces(NdjsonOutput.MEDIA_TYPE_LOW_QS)
+    public Response ratingGreaterThanStream(@PathParam("rating") int rating) {
+        return Response.ok(new NdjsonOutput<ProductDTO>(sink -> productService.streamRatingGreaterThan(rating, sink))).build();
+    }
+
     /*
      * Получение списка уникальных partNumber всех продуктов.
      * Возвращает список строк, каждая из которых является уникальным partNumber.
@@ -207,6 +369,16 @@ public class ProductResource {
         return Response.ok(productService.uniquePartNumbers()).build();
     }
 
+    /*
+     * Потоковый вариант для Accept: application/x-ndjson, по одной JSON-строке на partNumber.
+     */
+    @GET
+    @Path("/unique-partnumbers")
+    @Produces(NdjsonOutput.MEDIA_TYPE_LOW_QS)
+    public Response uniquePartNumbersStream() {
+        return Response.ok(new NdjsonOutput<String>(productService::streamUniquePartNumbers)).build();
+    }
+
     /*
      * Получение списка продуктов, цена которых находится в заданном диапазоне.
      * Параметры запроса:
@@ -217,21 +389,172 @@ public class ProductResource {
     @GET
     @Path("/price-range")
     public Response priceRange(@QueryParam("min") Float min, @QueryParam("max") Float max) {
-        return Response.ok(productService.priceRange(min, max).stream().map(ProductMapper::toDTO).collect(Collectors.toList())).build();
+        return Response.ok(productService.priceRangeView(min, max)).build();
+    }
+
+    /*
+     * Количество продуктов, цена которых находится в заданном диапазоне.
+     * Параметры запроса: min и max (обязательно).
+     */
+    @GET
+    @Path("/price-range/count")
+    public Response countPriceRange(@QueryParam("min") Float min, @QueryParam("max") Float max) {
+        return Response.ok(Collections.singletonMap("count", productService.countPriceRange(min, max))).build();
+    }
+
+    /*
+     * Фасеты каталога: количество по unitOfMeasure и manufacturer.type и гистограммы цены и рейтинга.
+     * Параметры запроса те же, что у filterByField (field, value) и filter (name, priceMin, priceMax),
+     * плюс число интервалов гистограмм priceBuckets и ratingBuckets (1..100, по умолчанию 10).
+     * Все фасеты считаются за один проход по подходящим продуктам.
+     */
+    @GET
+    @Path("/facets")
+    public Response facets(@QueryParam("field") String field,
+                           @QueryParam("value") String value,
+                           @QueryParam("name") String name,
+                           @QueryParam("priceMin") Float priceMin,
+                           @QueryParam("priceMax") Float priceMax,
+                           @QueryParam("priceBuckets") @DefaultValue("10") int priceBuckets,
+                           @QueryParam("ratingBuckets") @DefaultValue("10") int ratingBuckets) {
+        try {
+            return Response.ok(productService.facets(field, value, name, priceMin, priceMax,
+                    Math.max(1, Math.min(MAX_FACET_BUCKETS, priceBuckets)),
+                    Math.max(1, Math.min(MAX_FACET_BUCKETS, ratingBuckets)))).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(createErrorResponse("Invalid request", e.getMessage()))
+                    .build();
+        }
+    }
+
+    /*
+     * Получение самых дешёвых продуктов.
+     * Параметр запроса:
+     * - limit: количество продуктов (по умолчанию 10)
+     */
+    @GET
+    @Path("/cheapest")
+    public Response cheapest(@QueryParam("limit") @DefaultValue("10") int limit) {
+        return Response.ok(productService.cheapest(limit)).build();
+    }
+
+    /*
+     * Потоковый вариант для Accept: application/x-ndjson.
+     */
+    @GET
+    @Path("/price-range")
+    @Produces(NdjsonOutput.MEDIA_TYPE_LOW_QS)
+    public Response priceRangeStream(@QueryParam("min") Float min, @QueryParam("max") Float max) {
+        return Response.ok(new NdjsonOutput<ProductDTO>(sink -> productService.streamPriceRange(min, max, sink))).build();
     }
 
     /*
      * Увеличение цены всех продуктов на заданный процент.
      * Параметр пути:
      * - percent: процент увеличения цены (целое число)
-     * Возвращает количество обновленных записей.
+     * Запускает задание изменения цен по всему каталогу и возвращает его состояние с HTTP статусом 202;
+     * количество обновленных записей доступно в GET /products/price-adjustments/{jobId}.
      */
     @PUT
     @Path("/increase-price/{percent}")
-    @Transactional
-    public Response increasePrice(@PathParam("percent") int percent) {
-        int updatedCount = productService.increasePricePercent(percent);
-        return Response.ok(Collections.singletonMap("updated", updatedCount)).build();
+    public Response increasePrice(@PathParam("percent") int percent, @Context UriInfo uriInfo) {
+        return startPriceAdjustment(percent, null, null, null, null, null, PriceAdjustmentService.DEFAULT_CHUNK_SIZE, uriInfo);
+    }
+
+    /*
+     * Запуск задания изменения цен на подмножестве продуктов.
+     * Параметры запроса:
+     * - percent: процент изменения цены (целое число, обязательный)
+     * - field, value: фильтр как у /filter с параметрами field и value (необязательно)
+     * - name, priceMin, priceMax: фильтр как у /filter с параметрами name, priceMin, priceMax (необязательно)
+     * - chunkSize: количество продуктов в одной транзакции (по умолчанию 1000)
+     * Цены меняются пакетами по возрастанию id в фоне; возвращает состояние задания с HTTP статусом 202.
+     */
+    @POST
+    @Path("/price-adjustments")
+    public Response createPriceAdjustment(@QueryParam("percent") Integer percent,
+                                          @QueryParam("field") String field,
+                                          @QueryParam("value") String value,
+                                          @QueryParam("name") String name,
+                                          @QueryParam("priceMin") Float priceMin,
+                                          @QueryParam("priceMax") Float priceMax,
+                                          @QueryParam("chunkSize") @DefaultValue("1000") int chunkSize,
+                                          @Context UriInfo uriInfo) {
+        if (percent == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(createErrorResponse("Invalid request", "percent is required"))
+                    .build();
+        }
+        return startPriceAdjustment(percent, field, value, name, priceMin, priceMax, chunkSize, uriInfo);
+    }
+
+    /*
+     * Список заданий изменения цен, новые первыми.
+     */
+    @GET
+    @Path("/price-adjustments")
+    public Response listPriceAdjustments(@QueryParam("page") @DefaultValue("0") int page,
+                                         @QueryParam("size") @DefaultValue("20") int size) {
+        return Response.ok(priceAdjustmentService.list(page, size)).build();
+    }
+
+    /*
+     * Состояние задания: status (RUNNING, COMPLETED, FAILED), updated, chunks, lastId и текст ошибки.
+     */
+    @GET
+    @Path("/price-adjustments/{jobId}")
+    public Response getPriceAdjustment(@PathParam("jobId") Long jobId) {
+        PriceAdjustmentJob job = priceAdjustmentService.find(jobId);
+        if (job == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity(createErrorResponse("Not found", "Price adjustment job " + jobId + " not found"))
+                    .build();
+        }
+        return Response.ok(job).build();
+    }
+
+    /*
+     * Возобновление упавшего задания с последнего закоммиченного пакета.
+     */
+    @POST
+    @Path("/price-adjustments/{jobId}/resume")
+    public Response resumePriceAdjustment(@PathParam("jobId") Long jobId) {
+        try {
+            PriceAdjustmentJob job = priceAdjustmentRunner.resume(jobId);
+            if (job == null) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity(createErrorResponse("Not found", "Price adjustment job " + jobId + " not found"))
+                        .build();
+            }
+            return Response.accepted(job).build();
+        } catch (IllegalStateException e) {
+            return Response.status(Response.Status.CONFLICT)
+                    .entity(createErrorResponse("Conflict", e.getMessage()))
+                    .build();
+        }
+    }
+
+    /*
+     * Статистика кэша поиска связанных сущностей при создании и обновлении продуктов:
+     * размер, попадания, промахи, доля попаданий, устаревшие и вытесненные записи по каждому виду ключа.
+     */
+    @GET
+    @Path("/lookup-cache/stats")
+    public Response lookupCacheStats() {
+        return Response.ok(lookupCache.stats()).build();
+    }
+
+    /*
+     * Лента изменений продуктов (Server-Sent Events).
+     * События: product (одно изменение), products (пакет изменений за интервал),
+     * repriced (массовое изменение цен), resync (клиенту нужно перечитать данные).
+     */
+    @GET
+    @Path("/stream")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void stream(@Context SseEventSink sink, @Context Sse sse) {
+        changeFeed.subscribe(sink, sse);
     }
 
     /*
@@ -244,6 +567,138 @@ public class ProductResource {
                 .build();
     }
 
+    /*
+     * Общая часть keyset-режима для list, filter и sort.
+     * Некорректный или чужой курсор возвращает HTTP статус 400.
+     */
+    private Response seek(String field, String value, String sortField, boolean asc, String cursor, int size,
+                          Request request) {
+        try {
+            KeysetPage<Product> page = productService.seek(field, value, sortField, asc, KeysetCursor.decode(cursor), size);
+            EntityTag tag = etags.ofPage(page.getItems(), Product::getId, Product::getVersion);
+            Response.ResponseBuilder rb = request.evaluatePreconditions(tag);
+            if (rb == null) {
+                List<ProductDTO> dtos = page.getItems().stream().map(ProductMapper::toDTO).collect(Collectors.toList());
+                rb = Response.ok(dtos).tag(tag);
+            }
+            if (page.getNextCursor() != null) rb.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+            return rb.build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(createErrorResponse("Invalid request", e.getMessage()))
+                    .build();
+        }
+    }
+
+    /*
+     * Накопитель массового импорта: собирает строки в пакеты и отправляет их в ProductService.importChunk.
+     * Если пакет целиком откатился, все его строки отмечаются как FAILED с текстом ошибки.
+     */
+    private final class BulkImport {
+        private final int chunkSize;
+        private final List<Product> chunk = new ArrayList<>();
+        private final List<Integer> chunkIndexes = new ArrayList<>();
+        private final List<Map<String, Object>> results = new ArrayList<>();
+        private int index;
+        private int created;
+        private int failed;
+
+        private BulkImport(int chunkSize) {
+            this.chunkSize = Math.max(1, Math.min(chunkSize, MAX_CHUNK_SIZE));
+        }
+
+        private void add(ProductDTO dto) {
+            int i = index++;
+            if (dto == null) {
+                record(i, failure("Empty row"));
+                return;
+            }
+            chunk.add(ProductMapper.toEntity(dto));
+            chunkIndexes.add(i);
+            if (chunk.size() >= chunkSize) flush();
+        }
+
+        private void reject(String error) {
+            record(index++, failure(error));
+        }
+
+        private void flush() {
+            if (chunk.isEmpty()) return;
+            List<Map<String, Object>> chunkResults;
+            try {
+                chunkResults = productService.importChunk(chunk);
+            } catch (RuntimeException e) {
+                chunkResults = new ArrayList<>();
+                for (int i = 0; i < chunk.size(); i++) chunkResults.add(failure("Chunk rolled back: " + e.getMessage()));
+            }
+            for (int i = 0; i < chunkResults.size(); i++) {
+                record(chunkIndexes.get(i), chunkResults.get(i));
+            }
+            chunk.clear();
+            chunkIndexes.clear();
+        }
+
+        private void record(int i, Map<String, Object> result) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("index", i);
+            row.putAll(result);
+            results.add(row);
+            if ("CREATED".equals(result.get("status"))) created++;
+            else failed++;
+        }
+
+        private Map<String, Object> finish() {
+            flush();
+            results.sort((a, b) -> Integer.compare((Integer) a.get("index"), (Integer) b.get("index")));
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("total", index);
+            summary.put("created", created);
+            summary.put("failed", failed);
+            summary.put("results", results);
+            return summary;
+        }
+
+        private Map<String, Object> failure(String error) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("status", "FAILED");
+            m.put("error", error);
+            return m;
+        }
+    }
+
+    private Response startPriceAdjustment(int percent, String field, String value, String name,
+                                          Float priceMin, Float priceMax, int chunkSize, UriInfo uriInfo) {
+        try {
+            PriceAdjustmentJob job = priceAdjustmentRunner.start(percent, field, value, name, priceMin, priceMax, chunkSize);
+            UriBuilder ub = uriInfo.getBaseUriBuilder().path(ProductResource.class)
+                    .path("price-adjustments").path(String.valueOf(job.getId()));
+            return Response.accepted(job).location(ub.build()).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(createErrorResponse("Invalid request", e.getMessage()))
+                    .build();
+        }
+    }
+
+    /*
+     * Страница со слабым ETag; при совпадении с If-None-Match - HTTP статус 304 без тела.
+     */
+    private Response page(List<ProductDTO> dtos, Request request) {
+        EntityTag tag = etags.ofPage(dtos, ProductDTO::getId, ProductDTO::getVersion);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) return notModified.build();
+        return Response.ok(dtos).tag(tag).build();
+    }
+
+    private Response preconditionFailed() {
+        return preconditionFailed("Product was modified concurrently");
+    }
+
+    private Response preconditionFailed(String message) {
+        return Response.status(Response.Status.PRECONDITION_FAILED)
+                .entity(createErrorResponse("Precondition failed", message))
+                .build();
+    }
 
     private Object createErrorResponse(String error, String message) {
         return Map.of(
@@ -2,8 +2,12 @@ package com.example.productsystem.backend.service;
 
 
 import com.example.productsystem.backend.entity.Address;
+import com.example.productsystem.backend.event.AddressChangeEvent;
+import com.example.productsystem.backend.event.ChangeType;
+import com.example.productsystem.backend.mapper.AddressMapper;
 import com.example.productsystem.backend.repository.AddressRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 
@@ -21,9 +25,14 @@ public class AddressService {
     @Inject
     private AddressRepository addressRepository;
 
+    @Inject
+    private Event<AddressChangeEvent> changes;
+
     @Transactional
     public Address create(Address address) {
-        return addressRepository.create(address);
+        Address created = addressRepository.create(address);
+        fireChange(ChangeType.CREATED, created);
+        return created;
     }
 
     public Address find(Long id) {
@@ -32,12 +41,15 @@ public class AddressService {
 
     @Transactional
     public Address update(Address address) {
-        return addressRepository.update(address);
+        Address updated = addressRepository.update(address);
+        fireChange(ChangeType.UPDATED, updated);
+        return updated;
     }
 
     @Transactional
     public void delete(Long id) {
         addressRepository.delete(id);
+        changes.fire(new AddressChangeEvent(ChangeType.DELETED, id, null));
     }
 
     public List<Address> list(int page, int size, String sortField, boolean asc) {
@@ -59,4 +71,11 @@ public class AddressService {
     public List<Map<String, Object>> getAddressCountByTown() {
         return addressRepository.getAddressCountByTown();
     }
+
+    /*
+     * Событие доставляется наблюдателям только после успешного коммита текущей транзакции.
+     */
+    private void fireChange(ChangeType type, Address address) {
+        changes.fire(new AddressChangeEvent(type, address.getId(), AddressMapper.toDTO(address)));
+    }
 }
@@ -0,0 +1,65 @@
+package com.example.productsystem.backend.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/*
+ * Статистика второго уровня кэша и кэша запросов ProductPU по регионам.
+ * Счётчики собирает Hibernate (hibernate.generate_statistics в persistence.xml).
+ */
+@ApplicationScoped
+public class CacheStatisticsService {
+
+    /* Регионы кэша запросов, заданные подсказкой HINT_CACHE_REGION в репозиториях */
+    private static final String[] QUERY_REGIONS = {"query-persons-byPassportID", "query-organizations-byType"};
+
+    @PersistenceUnit(unitName = "ProductPU")
+    private EntityManagerFactory emf;
+
+    public Map<String, Object> stats() {
+        Statistics s = statistics();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", s.isStatisticsEnabled());
+        result.put("secondLevelCache", counters(s.getSecondLevelCacheHitCount(), s.getSecondLevelCacheMissCount(), s.getSecondLevelCachePutCount()));
+        result.put("queryCache", counters(s.getQueryCacheHitCount(), s.getQueryCacheMissCount(), s.getQueryCachePutCount()));
+
+        TreeSet<String> names = new TreeSet<>();
+        for (String name : s.getSecondLevelCacheRegionNames()) names.add(name);
+        for (String name : QUERY_REGIONS) names.add(name);
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String name : names) {
+            CacheRegionStatistics r = s.getCacheRegionStatistics(name);
+            if (r != null) regions.put(name, counters(r.getHitCount(), r.getMissCount(), r.getPutCount()));
+        }
+        result.put("regions", regions);
+        return result;
+    }
+
+    /* Сброс содержимого кэша и счётчиков: позволяет сравнить холодный и прогретый кэш */
+    public void evictAll() {
+        emf.getCache().evictAll();
+        emf.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+        statistics().clear();
+    }
+
+    private Statistics statistics() {
+        return emf.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private static Map<String, Object> counters(long hits, long misses, long puts) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("hits", hits);
+        m.put("misses", misses);
+        m.put("puts", puts);
+        m.put("hitRate", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        return m;
+    }
+}
@@ -2,8 +2,12 @@ package com.example.productsystem.backend.service;
 
 
 import com.example.productsystem.backend.entity.Coordinates;
+import com.example.productsystem.backend.event.ChangeType;
+import com.example.productsystem.backend.event.CoordinatesChangeEvent;
+import com.example.productsystem.backend.mapper.CoordinatesMapper;
 import com.example.productsystem.backend.repository.CoordinatesRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 
@@ -21,9 +25,14 @@ public class CoordinatesService {
     @Inject
     private CoordinatesRepository coordinatesRepository;
 
+    @Inject
+    private Event<CoordinatesChangeEvent> changes;
+
     @Transactional
     public Coordinates create(Coordinates coordinates) {
-        return coordinatesRepository.create(coordinates);
+        Coordinates created = coordinatesRepository.create(coordinates);
+        fireChange(ChangeType.CREATED, created);
+        return created;
     }
 
     public Coordinates find(Long id) {
@@ -32,12 +41,15 @@ public class CoordinatesService {
 
     @Transactional
     public Coordinates update(Coordinates coordinates) {
-        return coordinatesRepository.update(coordinates);
+        Coordinates updated = coordinatesRepository.update(coordinates);
+        fireChange(ChangeType.UPDATED, updated);
+        return updated;
     }
 
     @Transactional
     public void delete(Long id) {
         coordinatesRepository.delete(id);
+        changes.fire(new CoordinatesChangeEvent(ChangeType.DELETED, id, null));
     }
 
     public List<Coordinates> list(int page, int size, String sortField, boolean asc) {
@@ -67,4 +79,11 @@ public class CoordinatesService {
     public Map<String, Object> getCoordinatesStats() {
         return coordinatesRepository.getCoordinatesStats();
     }
-}
\ No newline at end of file
+
+    /*
+     * Событие доставляется наблюдателям только после успешного коммита текущей транзакции.
+     */
+    private void fireChange(ChangeType type, Coordinates coordinates) {
+        changes.fire(new CoordinatesChangeEvent(type, coordinates.getId(), CoordinatesMapper.toDTO(coordinates)));
+    }
+}
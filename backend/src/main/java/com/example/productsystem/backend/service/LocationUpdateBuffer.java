@@ -0,0 +1,122 @@
+package com.example.productsystem.backend.service;
+
+import com.example.productsystem.backend.entity.Location;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+ * Буфер пакетных обновлений местоположения Person.
+ * Обновления копятся в карте personId -> Location: повторное обновление того же человека до сброса
+ * заменяет предыдущее (побеждает последнее). Управляемый исполнитель сервера каждые FLUSH_INTERVAL_MS применяет накопленное
+ * пакетами по FLUSH_CHUNK человек, каждый пакет - отдельная транзакция с JDBC batching.
+ * Если ожидающих обновлений больше MAX_PENDING, новые не принимаются, пока буфер не сбросится.
+ */
+@ApplicationScoped
+public class LocationUpdateBuffer {
+
+    private static final Logger LOG = Logger.getLogger(LocationUpdateBuffer.class.getName());
+
+    private static final long FLUSH_INTERVAL_MS = 100;
+    private static final int FLUSH_CHUNK = 1000;
+    private static final int MAX_PENDING = 200_000;
+
+    @Inject
+    private PersonService personService;
+
+    @Resource
+    private ManagedScheduledExecutorService executor;
+
+    private final Map<Long, Location> pending = new ConcurrentHashMap<>();
+    private ScheduledFuture<?> schedule;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder missing = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+
+    @PostConstruct
+    void start() {
+        schedule = executor.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /* Оставшиеся обновления применяются перед остановкой */
+    @PreDestroy
+    void stop() {
+        flush();
+        if (schedule != null) schedule.cancel(false);
+    }
+
+    /*
+     * Ставит обновление в очередь. Возвращает false, если буфер переполнен и обновление не принято.
+     * Сам вызов не обращается к базе данных.
+     */
+    public boolean offer(Long personId, Location location) {
+        if (pending.size() >= MAX_PENDING && !pending.containsKey(personId)) {
+            rejected.increment();
+            return false;
+        }
+        if (pending.put(personId, location) != null) coalesced.increment();
+        accepted.increment();
+        return true;
+    }
+
+    /*
+     * Применяет накопленные обновления пакетами; ошибка пакета не останавливает остальные.
+     * Запись удаляется из буфера только если за время сброса её не заменило более новое обновление,
+     * иначе новое значение останется до следующего сброса.
+     */
+    synchronized void flush() {
+        if (pending.isEmpty()) return;
+        flushes.increment();
+        Map<Long, Location> chunk = new LinkedHashMap<>();
+        for (Map.Entry<Long, Location> e : pending.entrySet()) {
+            chunk.put(e.getKey(), e.getValue());
+            if (chunk.size() == FLUSH_CHUNK) {
+                apply(chunk);
+                chunk = new LinkedHashMap<>();
+            }
+        }
+        if (!chunk.isEmpty()) apply(chunk);
+    }
+
+    private void apply(Map<Long, Location> chunk) {
+        try {
+            int n = personService.applyLocations(chunk);
+            applied.add(n);
+            missing.add(chunk.size() - n);
+        } catch (RuntimeException e) {
+            failed.add(chunk.size());
+            LOG.log(Level.WARNING, "Failed to apply " + chunk.size() + " location updates", e);
+        }
+        chunk.forEach(pending::remove);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("pending", pending.size());
+        s.put("accepted", accepted.sum());
+        s.put("coalesced", coalesced.sum());
+        s.put("rejected", rejected.sum());
+        s.put("applied", applied.sum());
+        s.put("missing", missing.sum());
+        s.put("failed", failed.sum());
+        s.put("flushes", flushes.sum());
+        return s;
+    }
+}
@@ -2,13 +2,25 @@ package com.example.productsystem.backend.service;
 
 import com.example.productsystem.backend.entity.Address;
 import com.example.productsystem.backend.entity.Organization;
+import com.example.productsystem.backend.event.ChangeType;
+import com.example.productsystem.backend.event.OrganizationChangeEvent;
+import com.example.productsystem.backend.index.OrganizationEmployeesIndex;
+import com.example.productsystem.backend.index.OrganizationTurnoverIndex;
+import com.example.productsystem.backend.mapper.OrganizationMapper;
 import com.example.productsystem.backend.repository.OrganizationRepository;
+import com.example.productsystem.backend.stats.OrganizationCounters;
 import com.example.productsystem.common.OrganizationType;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /*
  * Сервисный слой для управления сущностями Organization.
@@ -21,9 +33,23 @@ public class OrganizationService {
     @Inject
     private OrganizationRepository repo;
 
+    @Inject
+    private Event<OrganizationChangeEvent> changes;
+
+    @Inject
+    private OrganizationCounters counters;
+
+    @Inject
+    private OrganizationTurnoverIndex turnoverIndex;
+
+    @Inject
+    private OrganizationEmployeesIndex employeesIndex;
+
     @Transactional
     public Organization create(Organization org) {
-        return repo.create(org);
+        Organization created = repo.create(org);
+        fireChange(ChangeType.CREATED, created);
+        return created;
     }
 
     public Organization find(Integer id) {
@@ -32,13 +58,18 @@ public class OrganizationService {
 
     @Transactional
     public Organization update(Organization org) {
-        return repo.update(org);
+        Organization updated = repo.update(org);
+        fireChange(ChangeType.UPDATED, updated);
+        return updated;
     }
 
     @Transactional
     public void delete(Integer id) {
         Organization org = repo.find(id);
-        if (org != null) repo.delete(org);
+        if (org != null) {
+            repo.delete(org);
+            changes.fire(new OrganizationChangeEvent(ChangeType.DELETED, id, null));
+        }
     }
 
     public List<Organization> findByName(String name) {
@@ -53,10 +84,28 @@ public class OrganizationService {
         return repo.list(page, size, sortField, asc);
     }
 
+    /*
+     * Страница берётся из OrganizationTurnoverIndex и загружается по первичному ключу;
+     * пока индекс не построен - ORDER BY в SQL.
+     */
     public List<Organization> sortByTurnover(int page, int size, boolean ascending) {
+        if (turnoverIndex.isReady()) {
+            return findByIds(turnoverIndex.page(page, size, ascending));
+        }
         return repo.sortByTurnover(page, size, ascending);
     }
 
+    /* Место организации в рейтинге по обороту или null, если организации нет */
+    public OrganizationTurnoverIndex.Rank turnoverRank(Integer id) {
+        if (turnoverIndex.isReady()) {
+            return turnoverIndex.rank(id);
+        }
+        Organization org = repo.find(id);
+        if (org == null || org.getAnnualTurnover() == null) return null;
+        long greater = repo.countByTurnoverGreaterThan(org.getAnnualTurnover());
+        return new OrganizationTurnoverIndex.Rank(id, org.getAnnualTurnover(), greater + 1, repo.count());
+    }
+
     public Address findAddressByOrganizationId(Integer id) {
         return repo.findAddressByOrganizationId(id);
     }
@@ -64,17 +113,60 @@ public class OrganizationService {
     @Transactional
     public void updateAddress(Integer organizationId, Address newAddress) {
         repo.updateAddress(organizationId, newAddress);
+        Organization org = repo.find(organizationId);
+        if (org != null) fireChange(ChangeType.UPDATED, org);
     }
 
+    /*
+     * Страница диапазона берётся из OrganizationEmployeesIndex и загружается по первичному ключу;
+     * пока индекс не построен - BETWEEN в SQL.
+     */
     public List<Organization> filterByEmployeeRange(int minEmployees, int maxEmployees, int page, int size) {
+        if (employeesIndex.isReady()) {
+            return findByIds(employeesIndex.range(minEmployees, maxEmployees, (long) page * size, size));
+        }
         return repo.filterByEmployeeRange(minEmployees, maxEmployees, page, size);
     }
 
+    public long countByEmployeeRange(int minEmployees, int maxEmployees) {
+        if (employeesIndex.isReady()) {
+            return employeesIndex.count(minEmployees, maxEmployees);
+        }
+        return repo.countByEmployeeRange(minEmployees, maxEmployees);
+    }
+
     public List<Organization> findByRatingGreaterThan(int rating) {
         return repo.findByRatingGreaterThan(rating);
     }
 
     public Long countByType(OrganizationType type) {
+        if (type != null && counters.isReady()) {
+            return counters.countByType(type);
+        }
         return repo.countByType(type);
     }
+
+    /* Количество, суммы и средние annualTurnover и employeesCount по типу организации из счётчиков в памяти */
+    public Map<String, Object> stats() {
+        return counters.isReady() ? counters.stats() : null;
+    }
+
+    /* Загрузка по id одним запросом с сохранением порядка ids */
+    private List<Organization> findByIds(int[] ids) {
+        Map<Integer, Organization> byId = new HashMap<>();
+        for (Organization o : repo.findByIds(Arrays.stream(ids).boxed().collect(Collectors.toList()))) byId.put(o.getId(), o);
+        List<Organization> ordered = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Organization o = byId.get(id);
+            if (o != null) ordered.add(o);
+        }
+        return ordered;
+    }
+
+    /*
+     * Событие доставляется наблюдателям только после успешного коммита текущей транзакции.
+     */
+    private void fireChange(ChangeType type, Organization org) {
+        changes.fire(new OrganizationChangeEvent(type, org.getId(), OrganizationMapper.toDTO(org)));
+    }
 }
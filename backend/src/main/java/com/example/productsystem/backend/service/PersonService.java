@@ -1,16 +1,38 @@
 package com.example.productsystem.backend.service;
 
+import com.example.productsystem.backend.cache.RelatedEntityCache;
 import com.example.productsystem.backend.entity.Location;
 import com.example.productsystem.backend.entity.Person;
+import com.example.productsystem.backend.event.ChangeType;
+import com.example.productsystem.backend.event.PersonChangeEvent;
+import com.example.productsystem.backend.event.PersonLocationsChangedEvent;
+import com.example.productsystem.backend.index.PersonAttributeIndex;
+import com.example.productsystem.backend.index.PersonLocationIndex;
+import com.example.productsystem.backend.index.PersonNameIndex;
+import com.example.productsystem.backend.mapper.LocationMapper;
+import com.example.productsystem.backend.mapper.PersonMapper;
+import com.example.productsystem.backend.repository.KeysetCursor;
+import com.example.productsystem.backend.repository.KeysetPage;
 import com.example.productsystem.backend.repository.PersonRepository;
+import com.example.productsystem.backend.stats.PersonCounters;
 import com.example.productsystem.common.Color;
 import com.example.productsystem.common.Country;
+import com.example.productsystem.common.LocationDTO;
+import com.example.productsystem.common.PersonDTO;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /*
  * Сервисный слой для управления сущностями Person.
@@ -23,9 +45,32 @@ public class PersonService {
     @Inject
     private PersonRepository repo;
 
+    @Inject
+    private Event<PersonChangeEvent> changes;
+
+    @Inject
+    private Event<PersonLocationsChangedEvent> locationChanges;
+
+    @Inject
+    private PersonAttributeIndex attributeIndex;
+
+    @Inject
+    private PersonCounters counters;
+
+    @Inject
+    private PersonLocationIndex locationIndex;
+
+    @Inject
+    private RelatedEntityCache lookupCache;
+
+    @Inject
+    private PersonNameIndex nameIndex;
+
     @Transactional
     public Person create(Person person) {
-        return repo.create(person);
+        Person created = repo.create(person);
+        fireChange(ChangeType.CREATED, created);
+        return created;
     }
 
     public Person find(Long id) {
@@ -34,37 +79,104 @@ public class PersonService {
 
     @Transactional
     public Person update(Person person) {
-        return repo.update(person);
+        Person updated = repo.update(person);
+        fireChange(ChangeType.UPDATED, updated);
+        return updated;
     }
 
     @Transactional
     public void delete(Long id) {
         Person person = repo.find(id);
-        if (person != null) repo.delete(person);
+        if (person != null) {
+            repo.delete(person);
+            changes.fire(new PersonChangeEvent(ChangeType.DELETED, id, null));
+        }
     }
 
     public List<Person> list(int page, int size, String sortField, boolean asc) {
         return repo.list(page, size, sortField, asc);
     }
 
+    /*
+     * Сначала id из кэша passportID -> id (поиск по первичному ключу с проверкой паспорта),
+     * иначе запрос по уникальному индексу; найденный человек запоминается в кэше после коммита.
+     */
     public Optional<Person> findByPassportID(String passportID) {
-        return repo.findByPassportID(passportID);
+        Long cachedId = lookupCache.personId(passportID);
+        if (cachedId != null) {
+            Person cached = repo.find(cachedId);
+            if (lookupCache.isPerson(passportID, cached)) {
+                return Optional.of(cached);
+            }
+        }
+        Optional<Person> person = repo.findByPassportID(passportID);
+        person.ifPresent(p -> lookupCache.remember(p, null, null, null));
+        return person;
+    }
+
+    /*
+     * Фильтры по равенству национальности, цвета глаз и волос отдаются только страницами ограниченного размера
+     * (keyset по id) или потоком: полный список в памяти не собирается.
+     */
+    public KeysetPage<Person> findByNationality(Country nationality, KeysetCursor after, int size) {
+        return repo.seekByAttribute("nationality", nationality, after, size);
+    }
+
+    public KeysetPage<Person> findByEyeColor(Color eyeColor, KeysetCursor after, int size) {
+        return repo.seekByAttribute("eyeColor", eyeColor, after, size);
+    }
+
+    public KeysetPage<Person> findByHairColor(Color hairColor, KeysetCursor after, int size) {
+        return repo.seekByAttribute("hairColor", hairColor, after, size);
+    }
+
+    @Transactional
+    public void streamByNationality(Country nationality, Consumer<PersonDTO> sink) {
+        stream("nationality", nationality, sink);
+    }
+
+    @Transactional
+    public void streamByEyeColor(Color eyeColor, Consumer<PersonDTO> sink) {
+        stream("eyeColor", eyeColor, sink);
     }
 
-    public List<Person> findByNationality(Country nationality) {
-        return repo.findByNationality(nationality);
+    @Transactional
+    public void streamByHairColor(Color hairColor, Consumer<PersonDTO> sink) {
+        stream("hairColor", hairColor, sink);
     }
 
-    public List<Person> findByEyeColor(Color eyeColor) {
-        return repo.findByEyeColor(eyeColor);
+    private void stream(String attribute, Enum<?> value, Consumer<PersonDTO> sink) {
+        try (Stream<PersonDTO> rows = repo.streamByAttribute(attribute, value)) {
+            rows.forEach(sink);
+        }
+    }
+
+    /*
+     * Поиск по словам имени с ранжированием через PersonNameIndex; страница загружается по первичному ключу.
+     * Пока индекс не построен - поиск подстроки в SQL с той же страницей.
+     */
+    public List<Person> findByName(String name, int page, int size) {
+        List<PersonNameIndex.Match> matches = nameIndex.search(name, (long) page * size, size);
+        if (matches == null) {
+            if (isShortQuery(name)) return new ArrayList<>();
+            return repo.findByName(name, page, size);
+        }
+        return findByIds(matches.stream().mapToLong(PersonNameIndex.Match::getId).toArray());
     }
 
-    public List<Person> findByHairColor(Color hairColor) {
-        return repo.findByHairColor(hairColor);
+    /* Подсказки для ввода имени: id и имя лучших limit совпадений без загрузки сущностей */
+    public List<PersonNameIndex.Match> autocomplete(String prefix, int limit) {
+        List<PersonNameIndex.Match> matches = nameIndex.search(prefix, 0, limit);
+        if (matches != null) return matches;
+        if (isShortQuery(prefix)) return new ArrayList<>();
+        return repo.findByName(prefix, 0, limit).stream()
+                .map(p -> new PersonNameIndex.Match(p.getId(), p.getName(), 0))
+                .collect(Collectors.toList());
     }
 
-    public List<Person> findByName(String name) {
-        return repo.findByName(name);
+    /* Подстрока короче MIN_PREFIX_LENGTH совпала бы почти со всеми строками, поэтому LIKE по ней не выполняется */
+    private static boolean isShortQuery(String query) {
+        return query == null || query.trim().length() < PersonNameIndex.MIN_PREFIX_LENGTH;
     }
 
     public Location findLocationByPersonId(Long id) {
@@ -74,23 +186,107 @@ public class PersonService {
     @Transactional
     public void updateLocation(Long personId, Location newLocation) {
         repo.updateLocation(personId, newLocation);
+        Person person = repo.find(personId);
+        if (person != null) fireChange(ChangeType.UPDATED, person);
     }
 
+    /*
+     * Если битовый индекс готов, id страницы берутся из пересечения его карт,
+     * а из базы данных загружается только сама страница по первичному ключу.
+     */
     public List<Person> filterByMultipleCriteria(Color eyeColor, Color hairColor, Country nationality, int page, int size) {
+        if (attributeIndex.isReady()) {
+            return findByIds(attributeIndex.find(eyeColor, hairColor, nationality, (long) page * size, size));
+        }
         return repo.filterByMultipleCriteria(eyeColor, hairColor, nationality, page, size);
     }
 
     public Long countByNationality(Country nationality) {
+        if (nationality != null && counters.isReady()) {
+            return counters.countByNationality(nationality);
+        }
+        if (nationality != null && attributeIndex.isReady()) {
+            return attributeIndex.count(null, null, nationality);
+        }
         return repo.countByNationality(nationality);
     }
 
+    /* Количество людей по nationality, eyeColor и hairColor из счётчиков в памяти */
+    public Map<String, Object> stats() {
+        return counters.isReady() ? counters.stats() : null;
+    }
+
+    /*
+     * Пакетное изменение местоположений из LocationUpdateBuffer в отдельной транзакции.
+     * Люди и их Location загружаются одним запросом, изменения записываются при flush пакетами JDBC
+     * (hibernate.jdbc.batch_size) и проходят через второй уровень кэша. Возвращает число найденных людей.
+     * После коммита публикуется одно PersonLocationsChangedEvent на пакет, а не PersonChangeEvent на каждого человека.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public int applyLocations(Map<Long, Location> locations) {
+        List<Person> persons = repo.findByIdsWithLocation(locations.keySet());
+        for (Person person : persons) {
+            Location newLocation = locations.get(person.getId());
+            if (person.getLocation() != null) {
+                person.getLocation().setX(newLocation.getX());
+                person.getLocation().setY(newLocation.getY());
+                person.getLocation().setZ(newLocation.getZ());
+                person.getLocation().setName(newLocation.getName());
+            } else {
+                person.setLocation(newLocation);
+            }
+        }
+        repo.flush();
+        Map<Long, LocationDTO> changed = new HashMap<>();
+        for (Person person : persons) changed.put(person.getId(), LocationMapper.toDTO(person.getLocation()));
+        if (!changed.isEmpty()) locationChanges.fire(new PersonLocationsChangedEvent(changed));
+        return persons.size();
+    }
+
+    /* k ближайших к точке людей по индексу местоположений; null, если индекс ещё не построен */
+    public PersonLocationIndex.Hit[] nearest(double x, double y, double z, int k) {
+        return locationIndex.isReady() ? locationIndex.nearest(x, y, z, k) : null;
+    }
+
+    /*
+     * id людей, чьё местоположение лежит в параллелепипеде [min, max], не больше limit.
+     * В total[0] записывается полное количество найденных. null, если индекс ещё не построен.
+     */
+    public long[] within(double[] min, double[] max, int limit, long[] total) {
+        return locationIndex.isReady() ? locationIndex.within(min, max, limit, total) : null;
+    }
+
+    /* Загрузка людей по id одним запросом с сохранением порядка ids; отсутствующие пропускаются */
+    public List<Person> findByIds(long[] ids) {
+        return inOrder(ids, repo.findByIds(Arrays.stream(ids).boxed().collect(Collectors.toList())));
+    }
+
+    private static List<Person> inOrder(long[] ids, List<Person> persons) {
+        Map<Long, Person> byId = new HashMap<>();
+        for (Person p : persons) byId.put(p.getId(), p);
+        List<Person> ordered = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Person p = byId.get(id);
+            if (p != null) ordered.add(p);
+        }
+        return ordered;
+    }
+
     @Transactional
     public boolean deleteByPassportID(String passportID) {
-        Optional<Person> person = repo.findByPassportID(passportID);
+        Optional<Person> person = findByPassportID(passportID);
         if (person.isPresent()) {
             repo.delete(person.get());
+            changes.fire(new PersonChangeEvent(ChangeType.DELETED, person.get().getId(), null));
             return true;
         }
         return false;
     }
+
+    /*
+     * Событие доставляется наблюдателям только после успешного коммита текущей транзакции.
+     */
+    private void fireChange(ChangeType type, Person person) {
+        changes.fire(new PersonChangeEvent(type, person.getId(), PersonMapper.toDTO(person)));
+    }
 }
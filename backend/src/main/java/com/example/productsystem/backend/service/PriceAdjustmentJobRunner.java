@@ -0,0 +1,112 @@
+package com.example.productsystem.backend.service;
+
+import com.example.productsystem.backend.entity.PriceAdjustmentJob;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+ * Исполнитель заданий изменения цен на управляемом исполнителе сервера: пакеты открывают транзакции
+ * в контексте приложения. Задания выполняются по одному из очереди, пакет за пакетом;
+ * между пакетами блокировки строк не удерживаются.
+ * При старте приложения продолжаются задания, оставшиеся в статусе RUNNING после остановки или сбоя.
+ */
+@ApplicationScoped
+public class PriceAdjustmentJobRunner {
+
+    private static final Logger LOG = Logger.getLogger(PriceAdjustmentJobRunner.class.getName());
+
+    /* Сколько раз подряд повторять пакет, прежде чем перевести задание в FAILED */
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MS = 500;
+
+    @Inject
+    private PriceAdjustmentService service;
+
+    @Resource
+    private ManagedExecutorService executor;
+
+    /* Очередь id заданий и задача, которая её разбирает; null, пока очередь пуста */
+    private final Queue<Long> queue = new ArrayDeque<>();
+    private Future<?> worker;
+
+    @PreDestroy
+    synchronized void stop() {
+        queue.clear();
+        if (worker != null) worker.cancel(true);
+    }
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        executor.execute(() -> {
+            try {
+                service.findRunning().forEach(job -> submit(job.getId()));
+            } catch (RuntimeException e) {
+                LOG.log(Level.WARNING, "Failed to resume price adjustment jobs", e);
+            }
+        });
+    }
+
+    /* Создаёт задание и ставит его в очередь; задание уже закоммичено, когда метод возвращает его */
+    public PriceAdjustmentJob start(int percent, String field, String value, String name,
+                                    Float priceMin, Float priceMax, int chunkSize) {
+        PriceAdjustmentJob job = service.create(percent, field, value, name, priceMin, priceMax, chunkSize);
+        submit(job.getId());
+        return job;
+    }
+
+    public PriceAdjustmentJob resume(Long jobId) {
+        PriceAdjustmentJob job = service.resume(jobId);
+        if (job != null) submit(job.getId());
+        return job;
+    }
+
+    private synchronized void submit(Long jobId) {
+        queue.add(jobId);
+        if (worker == null) worker = executor.submit(this::drain);
+    }
+
+    private void drain() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Long jobId;
+            synchronized (this) {
+                jobId = queue.poll();
+                if (jobId == null) {
+                    worker = null;
+                    return;
+                }
+            }
+            run(jobId);
+        }
+    }
+
+    private void run(Long jobId) {
+        int attempts = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                if (!service.runChunk(jobId)) return;
+                attempts = 0;
+            } catch (RuntimeException e) {
+                if (++attempts >= MAX_ATTEMPTS) {
+                    LOG.log(Level.WARNING, "Price adjustment job " + jobId + " failed", e);
+                    service.markFailed(jobId, e.getMessage());
+                    return;
+                }
+                try {
+                    Thread.sleep(RETRY_DELAY_MS * attempts);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.productsystem.backend.service;
+
+import com.example.productsystem.backend.entity.PriceAdjustmentJob;
+import com.example.productsystem.backend.event.ProductsRepricedEvent;
+import com.example.productsystem.backend.repository.PriceAdjustmentJobRepository;
+import com.example.productsystem.backend.repository.ProductRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/*
+ * Сервис заданий массового изменения цен.
+ * Каждый пакет - отдельная короткая транзакция: цены пакета и прогресс задания коммитятся вместе,
+ * поэтому после сбоя задание продолжается с первого незакоммиченного пакета и ни одна цена не меняется дважды.
+ * Запускает пакеты PriceAdjustmentJobRunner.
+ */
+@ApplicationScoped
+public class PriceAdjustmentService {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+    public static final int MAX_CHUNK_SIZE = 10000;
+
+    @Inject
+    private PriceAdjustmentJobRepository jobRepo;
+
+    @Inject
+    private ProductRepository productRepo;
+
+    @Inject
+    private Event<ProductsRepricedEvent> repriced;
+
+    /*
+     * Создание задания. Неизвестное поле фильтра или пустой диапазон цен приводят к IllegalArgumentException.
+     */
+    @Transactional
+    public PriceAdjustmentJob create(int percent, String field, String value, String name,
+                                     Float priceMin, Float priceMax, int chunkSize) {
+        boolean byField = field != null && value != null && !value.trim().isEmpty();
+        if (byField) productRepo.validateFilterField(field);
+        if (priceMin != null && priceMax != null && priceMin > priceMax) {
+            throw new IllegalArgumentException("priceMin must not be greater than priceMax");
+        }
+        PriceAdjustmentJob job = new PriceAdjustmentJob();
+        job.setPercent(percent);
+        job.setField(byField ? field : null);
+        job.setValue(byField ? value : null);
+        job.setName(name);
+        job.setPriceMin(priceMin);
+        job.setPriceMax(priceMax);
+        job.setChunkSize(Math.max(1, Math.min(chunkSize, MAX_CHUNK_SIZE)));
+        return jobRepo.create(job);
+    }
+
+    public PriceAdjustmentJob find(Long id) {
+        return jobRepo.find(id);
+    }
+
+    public List<PriceAdjustmentJob> list(int page, int size) {
+        return jobRepo.list(page, size);
+    }
+
+    public List<PriceAdjustmentJob> findRunning() {
+        return jobRepo.findByStatus(PriceAdjustmentJob.Status.RUNNING);
+    }
+
+    /*
+     * Обрабатывает следующий пакет задания. Возвращает true, если задание ещё не завершено.
+     * Новые цены пакета уходят наблюдателям в ProductsRepricedEvent после коммита пакета,
+     * поэтому индексы не расходятся с базой ни во время задания, ни после его сбоя.
+     * Когда пакет оказался неполным, задание завершается.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public boolean runChunk(Long jobId) {
+        PriceAdjustmentJob job = jobRepo.findForUpdate(jobId);
+        if (job == null || job.getStatus() != PriceAdjustmentJob.Status.RUNNING) return false;
+
+        List<Long> ids = productRepo.nextPriceChunk(job.getField(), job.getValue(), job.getName(),
+                job.getPriceMin(), job.getPriceMax(), job.getLastId(), job.getChunkSize());
+        if (!ids.isEmpty()) {
+            int updated = productRepo.increasePricePercent(ids, job.getPercent());
+            job.setUpdated(job.getUpdated() + updated);
+            job.setLastId(ids.get(ids.size() - 1));
+            job.setChunks(job.getChunks() + 1);
+            repriced.fire(new ProductsRepricedEvent(job.getPercent(), updated, productRepo.findPrices(ids)));
+        }
+        if (ids.size() < job.getChunkSize()) {
+            job.setStatus(PriceAdjustmentJob.Status.COMPLETED);
+            job.setFinishedAt(LocalDateTime.now());
+            return false;
+        }
+        return true;
+    }
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void markFailed(Long jobId, String error) {
+        PriceAdjustmentJob job = jobRepo.find(jobId);
+        if (job == null || job.getStatus() != PriceAdjustmentJob.Status.RUNNING) return;
+        job.setStatus(PriceAdjustmentJob.Status.FAILED);
+        job.setError(error);
+        job.setFinishedAt(LocalDateTime.now());
+        // После сбоя индексы перечитывают цены целиком, не полагаясь на доставку событий отдельных пакетов
+        repriced.fire(new ProductsRepricedEvent(job.getPercent(), 0, null));
+    }
+
+    /*
+     * Возобновление упавшего задания с последнего закоммиченного пакета.
+     * Возвращает null, если задания нет; бросает IllegalStateException, если оно не в статусе FAILED.
+     */
+    @Transactional
+    public PriceAdjustmentJob resume(Long jobId) {
+        PriceAdjustmentJob job = jobRepo.find(jobId);
+        if (job == null) return null;
+        if (job.getStatus() != PriceAdjustmentJob.Status.FAILED) {
+            throw new IllegalStateException("Only failed jobs can be resumed, current status: " + job.getStatus());
+        }
+        job.setStatus(PriceAdjustmentJob.Status.RUNNING);
+        job.setError(null);
+        job.setFinishedAt(null);
+        return job;
+    }
+}
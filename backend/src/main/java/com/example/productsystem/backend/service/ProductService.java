@@ -1,19 +1,52 @@
 package com.example.productsystem.backend.service;
 
+import com.example.productsystem.backend.cache.RelatedEntityCache;
 import com.example.productsystem.backend.entity.Coordinates;
 import com.example.productsystem.backend.entity.Organization;
 import com.example.productsystem.backend.entity.Person;
 import com.example.productsystem.backend.entity.Product;
+import com.example.productsystem.backend.event.ChangeType;
+import com.example.productsystem.backend.event.OrganizationChangeEvent;
+import com.example.productsystem.backend.event.PersonChangeEvent;
+import com.example.productsystem.backend.event.ProductChangeEvent;
+import com.example.productsystem.backend.index.OrganizationNameIndex;
+import com.example.productsystem.backend.index.PartNumberIndex;
+import com.example.productsystem.backend.index.ProductFacetIndex;
+import com.example.productsystem.backend.index.ProductFacets;
+import com.example.productsystem.backend.index.ProductPriceIndex;
+import com.example.productsystem.backend.index.ProductTrigramIndex;
+import com.example.productsystem.backend.mapper.OrganizationMapper;
+import com.example.productsystem.backend.mapper.PersonMapper;
+import com.example.productsystem.backend.mapper.ProductMapper;
 import com.example.productsystem.backend.repository.CoordinatesRepository;
+import com.example.productsystem.backend.repository.KeysetCursor;
+import com.example.productsystem.backend.repository.KeysetPage;
 import com.example.productsystem.backend.repository.OrganizationRepository;
 import com.example.productsystem.backend.repository.PersonRepository;
 import com.example.productsystem.backend.repository.ProductRepository;
+import com.example.productsystem.common.ProductDTO;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
-
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /*
  * Сервисный слой для управления сущностями Product.
@@ -23,6 +56,9 @@ import java.util.Optional;
 @ApplicationScoped
 public class ProductService {
 
+    /* Сколько кандидатов из индекса можно передать в IN (...) одним запросом */
+    private static final int MAX_SORTED_CANDIDATES = 1000;
+
     @Inject
     private ProductRepository repo;
 
@@ -35,8 +71,40 @@ public class ProductService {
     @Inject
     private CoordinatesRepository coordinatesRepo;
 
+    @Inject
+    private Event<ProductChangeEvent> changes;
+
+    @Inject
+    private Event<PersonChangeEvent> personChanges;
+
+    @Inject
+    private Event<OrganizationChangeEvent> organizationChanges;
+
+    @Inject
+    private ProductTrigramIndex trigramIndex;
+
+    @Inject
+    private OrganizationNameIndex organizationNameIndex;
+
+    @Inject
+    private ProductPriceIndex priceIndex;
+
+    @Inject
+    private PartNumberIndex partNumberIndex;
+
+    @Inject
+    private ProductFacetIndex facetIndex;
+
+    @Inject
+    private Validator validator;
+
+    @Inject
+    private RelatedEntityCache lookupCache;
+
     @Transactional
     public Product create(Product product) {
+        product.setVersion(null);
+        String manufacturerName = product.getManufacturer() != null ? product.getManufacturer().getName() : null;
         if (product.getOwner() != null) {
             product.setOwner(findOrCreatePerson(product.getOwner()));
         }
@@ -49,15 +117,27 @@ public class ProductService {
             product.setCoordinates(findOrCreateCoordinates(product.getCoordinates()));
         }
 
-        return repo.create(product);
+        boolean newOwner = product.getOwner() != null && product.getOwner().getId() == null;
+        boolean newManufacturer = product.getManufacturer() != null && product.getManufacturer().getId() == null;
+        Product created = repo.create(product);
+        lookupCache.remember(created.getOwner(), manufacturerName, created.getManufacturer(), created.getCoordinates());
+        fireCascadeCreated(newOwner ? List.of(created.getOwner()) : List.of(),
+                newManufacturer ? List.of(created.getManufacturer()) : List.of());
+        fireChange(ChangeType.CREATED, created);
+        return created;
     }
 
     public Product find(Long id) {
         return repo.find(id);
     }
 
+    public Long findVersion(Long id) {
+        return repo.findVersion(id);
+    }
+
     @Transactional
     public Product update(Product product) {
+        String manufacturerName = product.getManufacturer() != null ? product.getManufacturer().getName() : null;
         if (product.getOwner() != null) {
             product.setOwner(findOrCreatePerson(product.getOwner()));
         }
@@ -70,9 +150,22 @@ public class ProductService {
             product.setCoordinates(findOrCreateCoordinates(product.getCoordinates()));
         }
 
-        return repo.update(product);
+        boolean newOwner = product.getOwner() != null && product.getOwner().getId() == null;
+        boolean newManufacturer = product.getManufacturer() != null && product.getManufacturer().getId() == null;
+        Product updated = repo.update(product);
+        // версия увеличивается при flush: так она попадает в ответ и событие, а конфликт версий - вызывающему
+        repo.flush();
+        lookupCache.remember(updated.getOwner(), manufacturerName, updated.getManufacturer(), updated.getCoordinates());
+        fireCascadeCreated(newOwner ? List.of(updated.getOwner()) : List.of(),
+                newManufacturer ? List.of(updated.getManufacturer()) : List.of());
+        fireChange(ChangeType.UPDATED, updated);
+        return updated;
     }
 
+    /*
+     * Поиск связанных сущностей сначала проверяет RelatedEntityCache: по id из кэша выполняется поиск
+     * по первичному ключу вместо поиска по passportID, имени (LIKE) или паре координат.
+     */
     private Person findOrCreatePerson(Person newPerson) {
         if (newPerson.getId() != null) {
             Person existing = personRepo.find(newPerson.getId());
@@ -82,6 +175,13 @@ public class ProductService {
         }
 
         if (newPerson.getPassportID() != null) {
+            Long cachedId = lookupCache.personId(newPerson.getPassportID());
+            if (cachedId != null) {
+                Person cached = personRepo.find(cachedId);
+                if (lookupCache.isPerson(newPerson.getPassportID(), cached)) {
+                    return cached;
+                }
+            }
             Optional<Person> existingByPassport = personRepo.findByPassportID(newPerson.getPassportID());
             if (existingByPassport.isPresent()) {
                 return existingByPassport.get();
@@ -100,9 +200,19 @@ public class ProductService {
         }
 
         if (newOrg.getName() != null) {
-            List<Organization> existingByName = organizationRepo.findByName(newOrg.getName());
-            if (!existingByName.isEmpty()) {
-                return existingByName.get(0);
+            Integer cachedId = organizationNameIndex.isReady()
+                    ? organizationNameIndex.id(newOrg.getName())
+                    : lookupCache.organizationId(newOrg.getName());
+            if (cachedId != null) {
+                Organization cached = organizationRepo.find(cachedId);
+                if (lookupCache.isOrganization(newOrg.getName(), cached)) {
+                    return cached;
+                }
+            }
+            // промах индекса возможен для организации, закоммиченной до доставки события; поиск по уникальному индексу
+            Optional<Organization> existing = organizationRepo.findByNormalizedName(Organization.normalizeName(newOrg.getName()));
+            if (existing.isPresent()) {
+                return existing.get();
             }
         }
 
@@ -118,6 +228,13 @@ public class ProductService {
         }
 
         if (newCoords.getX() != null && newCoords.getY() != null) {
+            Long cachedId = lookupCache.coordinatesId(newCoords.getX(), newCoords.getY());
+            if (cachedId != null) {
+                Coordinates cached = coordinatesRepo.find(cachedId);
+                if (lookupCache.isCoordinates(newCoords.getX(), newCoords.getY(), cached)) {
+                    return cached;
+                }
+            }
             List<Coordinates> existingByValues = coordinatesRepo.findByCoordinates(newCoords.getX(), newCoords.getY());
             if (!existingByValues.isEmpty()) {
                 return existingByValues.get(0);
@@ -128,6 +245,127 @@ public class ProductService {
     }
 
 
+    /*
+     * Импорт одного пакета продуктов в собственной транзакции (POST /products/bulk).
+     * Связанные Person, Organization и Coordinates ищутся несколькими запросами на весь пакет,
+     * новые связанные сущности переиспользуются внутри пакета. Вставки уходят JDBC-батчами при flush.
+     * Строки, не прошедшие валидацию или с занятым partNumber, отклоняются до обращения к БД и не
+     * откатывают пакет. Возвращает результат по каждой строке в порядке входного списка.
+     * Организации в пакете сопоставляются по точному нормализованному имени (OrganizationNameIndex), а не по подстроке.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public List<Map<String, Object>> importChunk(List<Product> products) {
+        Set<String> partNumbers = products.stream()
+                .map(Product::getPartNumber).filter(pn -> pn != null).collect(Collectors.toSet());
+        Set<String> takenPartNumbers = repo.findExistingPartNumbers(
+                partNumberIndex.isReady() ? partNumberIndex.mightContainAny(partNumbers) : partNumbers);
+
+        Map<String, Person> persons = new HashMap<>();
+        personRepo.findByPassportIDs(products.stream()
+                        .map(Product::getOwner).filter(o -> o != null && o.getPassportID() != null)
+                        .map(Person::getPassportID).collect(Collectors.toSet()))
+                .forEach(p -> persons.put(p.getPassportID(), p));
+
+        Map<Integer, Organization> organizationsById = new HashMap<>();
+        organizationRepo.findByIds(products.stream()
+                        .map(Product::getManufacturer).filter(o -> o != null && o.getId() != null)
+                        .map(Organization::getId).collect(Collectors.toSet()))
+                .forEach(o -> organizationsById.put(o.getId(), o));
+        Map<String, Organization> organizationsByName = new HashMap<>();
+        Set<String> names = products.stream()
+                .map(Product::getManufacturer).filter(o -> o != null && o.getName() != null)
+                .map(o -> Organization.normalizeName(o.getName())).collect(Collectors.toSet());
+        if (organizationNameIndex.isReady()) {
+            Set<Integer> ids = new HashSet<>();
+            for (Iterator<String> it = names.iterator(); it.hasNext(); ) {
+                Integer id = organizationNameIndex.id(it.next());
+                if (id != null) {
+                    ids.add(id);
+                    it.remove();
+                }
+            }
+            organizationRepo.findByIds(ids).forEach(o -> organizationsByName.put(o.getNormalizedName(), o));
+        }
+        // имена, которых нет в индексе: обычно новые организации, проверяются по уникальному индексу одним запросом
+        organizationRepo.findByNormalizedNames(names).forEach(o -> organizationsByName.put(o.getNormalizedName(), o));
+
+        Map<String, Coordinates> coordinates = new HashMap<>();
+        List<Coordinates> requested = products.stream()
+                .map(Product::getCoordinates).filter(c -> c != null && c.getX() != null && c.getY() != null)
+                .collect(Collectors.toList());
+        coordinatesRepo.findByXInAndYIn(
+                        requested.stream().map(Coordinates::getX).collect(Collectors.toSet()),
+                        requested.stream().map(Coordinates::getY).collect(Collectors.toSet()))
+                .forEach(c -> coordinates.putIfAbsent(c.getX() + ":" + c.getY(), c));
+
+        List<Map<String, Object>> results = new ArrayList<>(products.size());
+        List<Product> created = new ArrayList<>();
+        Set<String> seenPartNumbers = new HashSet<>();
+        // новые владельцы и производители могут повторяться в пакете; сущности сравниваются по ссылке
+        Set<Person> newOwners = new LinkedHashSet<>();
+        Set<Organization> newManufacturers = new LinkedHashSet<>();
+        for (Product product : products) {
+            product.setVersion(null);
+            Set<ConstraintViolation<Product>> violations = validator.validate(product);
+            if (!violations.isEmpty()) {
+                results.add(importFailure(violations.stream()
+                        .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                        .collect(Collectors.joining("; "))));
+                continue;
+            }
+            String partNumber = product.getPartNumber();
+            if (partNumber != null && (takenPartNumbers.contains(partNumber) || !seenPartNumbers.add(partNumber))) {
+                results.add(importFailure("Duplicate partNumber: " + partNumber));
+                continue;
+            }
+
+            Person owner = product.getOwner();
+            if (owner != null && owner.getPassportID() != null) {
+                product.setOwner(persons.computeIfAbsent(owner.getPassportID(), k -> owner));
+            }
+            Organization manufacturer = product.getManufacturer();
+            if (manufacturer != null) {
+                Organization existing = manufacturer.getId() != null ? organizationsById.get(manufacturer.getId()) : null;
+                if (existing == null && manufacturer.getName() != null) {
+                    existing = organizationsByName.computeIfAbsent(Organization.normalizeName(manufacturer.getName()), k -> manufacturer);
+                }
+                if (existing != null) product.setManufacturer(existing);
+            }
+            Coordinates coords = product.getCoordinates();
+            if (coords != null && coords.getX() != null && coords.getY() != null) {
+                product.setCoordinates(coordinates.computeIfAbsent(coords.getX() + ":" + coords.getY(), k -> coords));
+            }
+
+            if (product.getOwner() != null && product.getOwner().getId() == null) newOwners.add(product.getOwner());
+            if (product.getManufacturer() != null && product.getManufacturer().getId() == null) {
+                newManufacturers.add(product.getManufacturer());
+            }
+            repo.create(product);
+            created.add(product);
+            Map<String, Object> ok = new LinkedHashMap<>();
+            ok.put("status", "CREATED");
+            results.add(ok);
+        }
+        repo.flush();
+
+        fireCascadeCreated(newOwners, newManufacturers);
+        for (Product product : created) {
+            fireChange(ChangeType.CREATED, product);
+        }
+        int next = 0;
+        for (Map<String, Object> result : results) {
+            if ("CREATED".equals(result.get("status"))) result.put("id", created.get(next++).getId());
+        }
+        return results;
+    }
+
+    private static Map<String, Object> importFailure(String error) {
+        Map<String, Object> failure = new LinkedHashMap<>();
+        failure.put("status", "FAILED");
+        failure.put("error", error);
+        return failure;
+    }
+
     @Transactional
     public void delete(Long id) {
         Product product = repo.find(id);
@@ -137,6 +375,8 @@ public class ProductService {
             product.setCoordinates(null);
             repo.update(product);
             repo.delete(product);
+            repo.flush();
+            changes.fire(new ProductChangeEvent(ChangeType.DELETED, id, null));
         }
     }
 
@@ -144,15 +384,37 @@ public class ProductService {
         return repo.list(page, size, sortField, asc);
     }
 
+    /*
+     * Фильтр только по цене обслуживается индексом цен: страница id берётся из памяти, из БД читаются только её строки.
+     */
     public List<Product> filter(String name, Float min, Float max, int page, int size) {
+        if (name == null && (min != null || max != null) && priceIndex.isReady()) {
+            long[] ids = priceIndex.range(min != null ? min : Float.NEGATIVE_INFINITY,
+                    max != null ? max : Float.POSITIVE_INFINITY, (long) page * size, size);
+            return repo.findByIds(toList(ids));
+        }
         return repo.filter(name, min, max, page, size);
     }
 
+    /*
+     * Поиск по partNumber через PartNumberIndex: отсутствующий partNumber отсекается фильтром Блума без запроса,
+     * найденный id проверяется по первичному ключу. Пока индекс не построен, используется SQL.
+     */
+    public Optional<Product> findByPartNumber(String partNumber) {
+        if (!partNumberIndex.isReady()) return repo.findByPartNumber(partNumber);
+        Long id = partNumberIndex.idOf(partNumber);
+        if (id == null) return Optional.empty();
+        Product p = repo.find(id);
+        if (p != null && partNumber.equals(p.getPartNumber())) return Optional.of(p);
+        return repo.findByPartNumber(partNumber);
+    }
+
     @Transactional
     public boolean deleteByPartNumber(String partNumber) {
-        Optional<Product> p = repo.findByPartNumber(partNumber);
+        Optional<Product> p = findByPartNumber(partNumber);
         if (p.isPresent()) {
             repo.delete(p.get());
+            changes.fire(new ProductChangeEvent(ChangeType.DELETED, p.get().getId(), null));
             return true;
         }
         return false;
@@ -162,11 +424,135 @@ public class ProductService {
         return repo.filterByField(field, value, page, size, sortField, asc);
     }
 
+    public List<ProductDTO> listView(int page, int size, String sortField, boolean asc) {
+        return repo.listView(page, size, sortField, asc);
+    }
+
+    /*
+     * Поиск подстроки сначала разрешается триграммным индексом в список id, затем читаются только эти строки.
+     * Без сортировки страница вырезается из упорядоченных по id кандидатов прямо в памяти.
+     * Если индекс не может ответить или кандидатов слишком много для сортировки в БД, используется LIKE.
+     */
+    public List<ProductDTO> filterByFieldView(String field, String value, int page, int size, String sortField, boolean asc) {
+        int[] ids = trigramIndex.search(field, value);
+        if (ids == null || (sortField != null && ids.length > MAX_SORTED_CANDIDATES)) {
+            return repo.filterByFieldView(field, value, page, size, sortField, asc);
+        }
+        if (sortField != null) {
+            return repo.findViewsByIds(toList(ids, 0, ids.length, true), sortField, asc, page, size);
+        }
+        long from = (long) page * size;
+        if (from >= ids.length) return new ArrayList<>();
+        int to = (int) Math.min(ids.length, from + size);
+        List<Long> pageIds = toList(ids, (int) from, to, asc);
+        return repo.findViewsByIds(pageIds, null, asc, 0, pageIds.size());
+    }
+
+    /* Элементы [from, to) в порядке сортировки: для desc отсчёт идёт с конца массива */
+    private static List<Long> toList(int[] ids, int from, int to, boolean asc) {
+        List<Long> list = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            list.add((long) ids[asc ? i : ids.length - 1 - i]);
+        }
+        return list;
+    }
+
+    public List<ProductDTO> ratingGreaterThanView(int rating) {
+        return repo.ratingGreaterThanView(rating);
+    }
+
+    /*
+     * Если индекс цен готов и диапазон небольшой, строки читаются по id из индекса (в порядке цены).
+     * Широкие диапазоны по-прежнему обслуживаются одним SQL-запросом BETWEEN.
+     */
+    public List<ProductDTO> priceRangeView(Float min, Float max) {
+        if (min != null && max != null && priceIndex.isReady() && priceIndex.count(min, max) <= MAX_SORTED_CANDIDATES) {
+            long[] ids = priceIndex.range(min, max, 0, MAX_SORTED_CANDIDATES);
+            return repo.findViewsByIds(toList(ids), "price", true, 0, ids.length);
+        }
+        return repo.priceRangeView(min, max);
+    }
+
+    public long countPriceRange(Float min, Float max) {
+        if (min != null && max != null && priceIndex.isReady()) {
+            return priceIndex.count(min, max);
+        }
+        return repo.countPriceRange(min, max);
+    }
+
+    public List<ProductDTO> cheapest(int limit) {
+        if (priceIndex.isReady()) {
+            long[] ids = priceIndex.cheapest(limit);
+            return repo.findViewsByIds(toList(ids), "price", true, 0, ids.length);
+        }
+        return repo.cheapestView(limit);
+    }
+
+    /*
+     * Фасеты по продуктам, подходящим под фильтры filterByField и filter.
+     * Сначала колоночный снимок в памяти; если он не может ответить - один потоковый SQL-проход по подходящим строкам.
+     */
+    @Transactional
+    public Map<String, Object> facets(String field, String value, String name, Float priceMin, Float priceMax,
+                                      int priceBuckets, int ratingBuckets) {
+        ProductFacets facets = facetIndex.facets(field, value, name, priceMin, priceMax);
+        if (facets == null) {
+            ProductFacets scanned = new ProductFacets();
+            repo.scanFacetRows(field, value, name, priceMin, priceMax, row -> scanned.add(
+                    row[1] != null ? ((Enum<?>) row[1]).ordinal() : -1,
+                    row[3] != null ? ((Enum<?>) row[3]).ordinal() : -1,
+                    (Float) row[4], (Integer) row[5]));
+            facets = scanned;
+        }
+        return facets.toMap(priceBuckets, ratingBuckets);
+    }
+
+    private static List<Long> toList(long[] ids) {
+        List<Long> list = new ArrayList<>(ids.length);
+        for (long id : ids) list.add(id);
+        return list;
+    }
+
+    /*
+     * Потоковая выдача для NDJSON: каждая строка передаётся в sink сразу после чтения из курсора.
+     * Транзакция держит соединение и курсор открытыми, пока sink пишет ответ клиенту.
+     */
+    @Transactional
+    public void streamRatingGreaterThan(int rating, Consumer<ProductDTO> sink) {
+        try (Stream<ProductDTO> rows = repo.streamRatingGreaterThanView(rating)) {
+            rows.forEach(sink);
+        }
+    }
+
+    @Transactional
+    public void streamPriceRange(Float min, Float max, Consumer<ProductDTO> sink) {
+        try (Stream<ProductDTO> rows = repo.streamPriceRangeView(min, max)) {
+            rows.forEach(sink);
+        }
+    }
+
+    @Transactional
+    public void streamUniquePartNumbers(Consumer<String> sink) {
+        if (partNumberIndex.isReady()) {
+            for (String pn : partNumberIndex.partNumbers()) sink.accept(pn);
+            return;
+        }
+        try (Stream<String> rows = repo.streamUniquePartNumbers()) {
+            rows.forEach(sink);
+        }
+    }
+
+    public KeysetPage<Product> seek(String field, String value, String sortField, boolean asc, KeysetCursor after, int size) {
+        return repo.seek(field, value, sortField, asc, after, size);
+    }
+
     public List<Product> ratingGreaterThan(int rating) {
         return repo.ratingGreaterThan(rating);
     }
 
+    /* partNumber уникален, поэтому список берётся из PartNumberIndex без SELECT DISTINCT */
     public List<String> uniquePartNumbers() {
+        if (partNumberIndex.isReady()) return Arrays.asList(partNumberIndex.partNumbers());
         return repo.uniquePartNumbers();
     }
 
@@ -174,8 +560,21 @@ public class ProductService {
         return repo.priceRange(min, max);
     }
 
-    @Transactional
-    public int increasePricePercent(int percent) {
-        return repo.increasePricePercent(percent);
+    /*
+     * Событие доставляется наблюдателям только после успешного коммита текущей транзакции.
+     */
+    private void fireChange(ChangeType type, Product product) {
+        changes.fire(new ProductChangeEvent(type, product.getId(), ProductMapper.toDTO(product)));
+    }
+
+    /*
+     * Владелец и производитель, созданные каскадом вместе с продуктом, минуют PersonService и OrganizationService,
+     * поэтому их события CREATED публикуются здесь: иначе индексы по людям и организациям не увидят эти строки.
+     */
+    private void fireCascadeCreated(Collection<Person> owners, Collection<Organization> manufacturers) {
+        for (Person p : owners) personChanges.fire(new PersonChangeEvent(ChangeType.CREATED, p.getId(), PersonMapper.toDTO(p)));
+        for (Organization o : manufacturers) {
+            organizationChanges.fire(new OrganizationChangeEvent(ChangeType.CREATED, o.getId(), OrganizationMapper.toDTO(o)));
+        }
     }
 }
@@ -0,0 +1,64 @@
+package com.example.productsystem.backend.stats;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+ * Периодическая сверка PersonCounters и OrganizationCounters с базой данных.
+ * Расписание выполняет управляемый исполнитель сервера, поэтому задачи получают контекст приложения
+ * и могут открывать транзакции; сам скан идёт в транзакционных методах reconcile() счётчиков.
+ * Первая сверка при старте приложения заполняет счётчики; до неё запросы подсчёта обслуживаются SQL.
+ */
+@ApplicationScoped
+public class CounterReconciler {
+
+    private static final Logger LOG = Logger.getLogger(CounterReconciler.class.getName());
+
+    private static final long INTERVAL_MINUTES = 10;
+
+    @Inject
+    private PersonCounters personCounters;
+
+    @Inject
+    private OrganizationCounters organizationCounters;
+
+    @Resource
+    private ManagedScheduledExecutorService executor;
+
+    private ScheduledFuture<?> schedule;
+
+    @PreDestroy
+    void stop() {
+        if (schedule != null) schedule.cancel(true);
+    }
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        schedule = executor.scheduleWithFixedDelay(this::reconcile, 0, INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /* Исключение не должно отменять расписание, поэтому ошибки сверки только записываются в журнал */
+    void reconcile() {
+        try {
+            long drift = personCounters.reconcile();
+            if (drift > 0) LOG.info("Person counters reconciled, drift " + drift);
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Failed to reconcile person counters", e);
+        }
+        try {
+            long drift = organizationCounters.reconcile();
+            if (drift > 0) LOG.info("Organization counters reconciled, drift " + drift);
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Failed to reconcile organization counters", e);
+        }
+    }
+}
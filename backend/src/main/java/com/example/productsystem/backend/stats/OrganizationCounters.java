@@ -0,0 +1,171 @@
+package com.example.productsystem.backend.stats;
+
+import com.example.productsystem.backend.event.ChangeType;
+import com.example.productsystem.backend.event.OrganizationChangeEvent;
+import com.example.productsystem.backend.repository.OrganizationRepository;
+import com.example.productsystem.common.OrganizationDTO;
+import com.example.productsystem.common.OrganizationType;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * Счётчики Organization по type: количество, сумма annualTurnover и сумма employeesCount (средние считаются при чтении).
+ * Устроены так же, как PersonCounters: обновляются после коммита по разнице с последними учтёнными значениями строки
+ * и периодически сверяются с базой данных.
+ */
+@ApplicationScoped
+public class OrganizationCounters {
+
+    private static final OrganizationType[] TYPES = OrganizationType.values();
+
+    private static final class Row {
+        final int type;
+        final long turnover;
+        final long employees;
+
+        Row(OrganizationType type, Long turnover, long employees) {
+            this.type = type != null ? type.ordinal() : -1;
+            this.turnover = turnover != null ? turnover : 0;
+            this.employees = employees;
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Row> rows = new ConcurrentHashMap<>();
+    private final LongAdder total = new LongAdder();
+    private final LongAdder[] count = PersonCounters.adders(TYPES.length);
+    private final LongAdder[] turnover = PersonCounters.adders(TYPES.length);
+    private final LongAdder[] employees = PersonCounters.adders(TYPES.length);
+    private volatile boolean ready;
+    private volatile Instant reconciledAt;
+    private volatile long lastDrift;
+
+    @Inject
+    private OrganizationRepository repo;
+
+    void onOrganizationChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) OrganizationChangeEvent event) {
+        lock.readLock().lock();
+        try {
+            if (event.getType() == ChangeType.DELETED) {
+                rows.computeIfPresent(event.getId(), (id, old) -> {
+                    apply(old, -1);
+                    return null;
+                });
+            } else {
+                OrganizationDTO o = event.getOrganization();
+                Row row = new Row(o.getType(), o.getAnnualTurnover(), o.getEmployeesCount());
+                rows.compute(event.getId(), (id, old) -> {
+                    if (old != null) apply(old, -1);
+                    apply(row, 1);
+                    return row;
+                });
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /* Пересчёт по базе данных в транзакции (курсор читается порциями); возвращает сумму модулей расхождений */
+    @Transactional
+    public long reconcile() {
+        lock.writeLock().lock();
+        try {
+            long[] before = snapshot();
+            rows.clear();
+            reset();
+            repo.scanAggregates(r -> {
+                Row row = new Row((OrganizationType) r[1], (Long) r[2], (Integer) r[3]);
+                rows.put((Integer) r[0], row);
+                apply(row, 1);
+            });
+            long[] after = snapshot();
+            long drift = 0;
+            if (ready) {
+                for (int i = 0; i < before.length; i++) drift += Math.abs(after[i] - before[i]);
+            }
+            lastDrift = drift;
+            reconciledAt = Instant.now();
+            ready = true;
+            return drift;
+        } catch (RuntimeException e) {
+            ready = false;
+            throw e;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long countByType(OrganizationType type) {
+        return count[type.ordinal()].sum();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("total", total.sum());
+        Map<String, Object> byType = new LinkedHashMap<>();
+        for (OrganizationType t : TYPES) {
+            int i = t.ordinal();
+            long n = count[i].sum();
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("count", n);
+            m.put("annualTurnover", sumAndAverage(turnover[i].sum(), n));
+            m.put("employeesCount", sumAndAverage(employees[i].sum(), n));
+            byType.put(t.name(), m);
+        }
+        result.put("type", byType);
+        result.put("reconciledAt", reconciledAt != null ? reconciledAt.toString() : null);
+        result.put("lastDrift", lastDrift);
+        return result;
+    }
+
+    private void apply(Row row, int sign) {
+        total.add(sign);
+        if (row.type < 0) return;
+        count[row.type].add(sign);
+        turnover[row.type].add(sign * row.turnover);
+        employees[row.type].add(sign * row.employees);
+    }
+
+    private long[] snapshot() {
+        long[] values = new long[1 + 3 * TYPES.length];
+        int i = 0;
+        values[i++] = total.sum();
+        for (int t = 0; t < TYPES.length; t++) {
+            values[i++] = count[t].sum();
+            values[i++] = turnover[t].sum();
+            values[i++] = employees[t].sum();
+        }
+        return values;
+    }
+
+    private void reset() {
+        total.reset();
+        for (int t = 0; t < TYPES.length; t++) {
+            count[t].reset();
+            turnover[t].reset();
+            employees[t].reset();
+        }
+    }
+
+    private static Map<String, Object> sumAndAverage(long sum, long n) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("sum", sum);
+        m.put("avg", n == 0 ? 0.0 : (double) sum / n);
+        return m;
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.productsystem.backend.stats;
+
+import com.example.productsystem.backend.event.ChangeType;
+import com.example.productsystem.backend.event.PersonChangeEvent;
+import com.example.productsystem.backend.repository.PersonRepository;
+import com.example.productsystem.common.Color;
+import com.example.productsystem.common.Country;
+import com.example.productsystem.common.PersonDTO;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * Счётчики Person по nationality, eyeColor и hairColor, обновляемые после коммита каждого изменения.
+ * Для каждого id хранятся последние учтённые значения, чтобы UPDATED и DELETED вычитали ровно то, что было добавлено.
+ * Чтение - сумма LongAdder без обращения к базе данных. Расхождения (например, события, пришедшие не по порядку)
+ * исправляет периодическая сверка CounterReconciler.
+ */
+@ApplicationScoped
+public class PersonCounters {
+
+    private static final Color[] COLORS = Color.values();
+    private static final Country[] COUNTRIES = Country.values();
+
+    /* Учтённые значения строки: ordinal eyeColor, hairColor и nationality (-1 - нет значения) */
+    private static final class Row {
+        final int eye;
+        final int hair;
+        final int nationality;
+
+        Row(Color eye, Color hair, Country nationality) {
+            this.eye = eye != null ? eye.ordinal() : -1;
+            this.hair = hair != null ? hair.ordinal() : -1;
+            this.nationality = nationality != null ? nationality.ordinal() : -1;
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Row> rows = new ConcurrentHashMap<>();
+    private final LongAdder total = new LongAdder();
+    private final LongAdder withoutNationality = new LongAdder();
+    private final LongAdder[] byNationality = adders(COUNTRIES.length);
+    private final LongAdder[] byEyeColor = adders(COLORS.length);
+    private final LongAdder[] byHairColor = adders(COLORS.length);
+    private volatile boolean ready;
+    private volatile Instant reconciledAt;
+    private volatile long lastDrift;
+
+    @Inject
+    private PersonRepository repo;
+
+    void onPersonChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) PersonChangeEvent event) {
+        lock.readLock().lock();
+        try {
+            if (event.getType() == ChangeType.DELETED) {
+                rows.computeIfPresent(event.getId(), (id, old) -> {
+                    apply(old, -1);
+                    return null;
+                });
+            } else {
+                PersonDTO p = event.getPerson();
+                Row row = new Row(p.getEyeColor(), p.getHairColor(), p.getNationality());
+                rows.compute(event.getId(), (id, old) -> {
+                    if (old != null) apply(old, -1);
+                    apply(row, 1);
+                    return row;
+                });
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * Пересчёт счётчиков по базе данных. Изменения, пришедшие во время сверки, ждут её окончания.
+     * Возвращает расхождение: сумму модулей разностей старых и новых значений по всем счётчикам.
+     * Скан идёт в транзакции: только так курсор читается порциями fetch size, а не загружается целиком.
+     */
+    @Transactional
+    public long reconcile() {
+        lock.writeLock().lock();
+        try {
+            long[] before = snapshot();
+            rows.clear();
+            reset();
+            repo.scanAttributes(r -> {
+                Row row = new Row((Color) r[1], (Color) r[2], (Country) r[3]);
+                rows.put((Long) r[0], row);
+                apply(row, 1);
+            });
+            long[] after = snapshot();
+            long drift = 0;
+            if (ready) {
+                for (int i = 0; i < before.length; i++) drift += Math.abs(after[i] - before[i]);
+            }
+            lastDrift = drift;
+            reconciledAt = Instant.now();
+            ready = true;
+            return drift;
+        } catch (RuntimeException e) {
+            ready = false;
+            throw e;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long countByNationality(Country nationality) {
+        return byNationality[nationality.ordinal()].sum();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("total", total.sum());
+        Map<String, Long> nationality = new LinkedHashMap<>();
+        for (Country c : COUNTRIES) nationality.put(c.name(), byNationality[c.ordinal()].sum());
+        result.put("nationality", nationality);
+        result.put("withoutNationality", withoutNationality.sum());
+        result.put("eyeColor", colors(byEyeColor));
+        result.put("hairColor", colors(byHairColor));
+        result.put("reconciledAt", reconciledAt != null ? reconciledAt.toString() : null);
+        result.put("lastDrift", lastDrift);
+        return result;
+    }
+
+    private void apply(Row row, int sign) {
+        total.add(sign);
+        if (row.nationality >= 0) byNationality[row.nationality].add(sign);
+        else withoutNationality.add(sign);
+        if (row.eye >= 0) byEyeColor[row.eye].add(sign);
+        if (row.hair >= 0) byHairColor[row.hair].add(sign);
+    }
+
+    private long[] snapshot() {
+        long[] values = new long[2 + COUNTRIES.length + 2 * COLORS.length];
+        int i = 0;
+        values[i++] = total.sum();
+        values[i++] = withoutNationality.sum();
+        for (LongAdder a : byNationality) values[i++] = a.sum();
+        for (LongAdder a : byEyeColor) values[i++] = a.sum();
+        for (LongAdder a : byHairColor) values[i++] = a.sum();
+        return values;
+    }
+
+    private void reset() {
+        total.reset();
+        withoutNationality.reset();
+        for (LongAdder a : byNationality) a.reset();
+        for (LongAdder a : byEyeColor) a.reset();
+        for (LongAdder a : byHairColor) a.reset();
+    }
+
+    private static Map<String, Long> colors(LongAdder[] adders) {
+        Map<String, Long> m = new LinkedHashMap<>();
+        for (Color c : COLORS) m.put(c.name(), adders[c.ordinal()].sum());
+        return m;
+    }
+
+    static LongAdder[] adders(int n) {
+        LongAdder[] adders = new LongAdder[n];
+        for (int i = 0; i < n; i++) adders[i] = new LongAdder();
+        return adders;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.productsystem.backend;
+
+import com.example.productsystem.backend.entity.Address;
+import com.example.productsystem.backend.entity.Coordinates;
+import com.example.productsystem.backend.entity.Location;
+import com.example.productsystem.backend.entity.Organization;
+import com.example.productsystem.backend.entity.Person;
+import com.example.productsystem.backend.entity.Product;
+import com.example.productsystem.common.Color;
+import com.example.productsystem.common.Country;
+import com.example.productsystem.common.OrganizationType;
+import com.example.productsystem.common.UnitOfMeasure;
+
+/* Полные графы сущностей для тестов: у каждой организации два адреса с town, у каждого владельца - location */
+public final class TestData {
+
+    private TestData() {
+    }
+
+    public static Organization organization(int i) {
+        return new Organization("Organization " + i,
+                new Address("1" + i, new Location(i, i, i, "Official " + i)),
+                1000L * i, i, 1 + i % 10, OrganizationType.values()[i % OrganizationType.values().length],
+                new Address("2" + i, new Location(-i, -i, -i, "Postal " + i)));
+    }
+
+    public static Person person(int i) {
+        return new Person("Person " + i, Color.values()[i % Color.values().length], Color.RED,
+                new Location(i, i, i, "Home " + i), "passport-" + i, Country.values()[i % Country.values().length]);
+    }
+
+    /* Продукт i с rating = i и price = i, чтобы выборки по порогу возвращали заданное число строк */
+    public static Product product(int i, Organization manufacturer, Person owner) {
+        return new Product("Product " + i, new Coordinates(i, (double) i), UnitOfMeasure.PCS, manufacturer,
+                (float) i, 10L * i, i, String.format("PN-%025d", i), owner);
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.productsystem.backend;
+
+import com.example.productsystem.backend.entity.Address;
+import com.example.productsystem.backend.entity.Coordinates;
+import com.example.productsystem.backend.entity.Location;
+import com.example.productsystem.backend.entity.Organization;
+import com.example.productsystem.backend.entity.Person;
+import com.example.productsystem.backend.entity.PriceAdjustmentJob;
+import com.example.productsystem.backend.entity.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.SharedCacheMode;
+import jakarta.persistence.ValidationMode;
+import jakarta.persistence.spi.ClassTransformer;
+import jakarta.persistence.spi.PersistenceUnitInfo;
+import jakarta.persistence.spi.PersistenceUnitTransactionType;
+import org.hibernate.SessionFactory;
+import org.hibernate.jpa.HibernatePersistenceProvider;
+import org.hibernate.stat.Statistics;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.sql.DataSource;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.function.Supplier;
+
+/*
+ * Единица ProductPU со свойствами из persistence.xml на H2 в памяти с локальными транзакциями вместо JTA.
+ * Остальные настройки (batch_size, второй уровень кэша, статистика) - как в приложении,
+ * поэтому счётчики Statistics показывают те же запросы, что и на сервере.
+ * Репозиториям EntityManager подставляется в поле @PersistenceContext.
+ */
+public final class TestPersistence implements AutoCloseable {
+
+    private static final String UNIT = "ProductPU";
+    private static final List<Class<?>> ENTITIES = List.of(Product.class, Coordinates.class, Organization.class,
+            Address.class, Location.class, Person.class, PriceAdjustmentJob.class);
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private final EntityManagerFactory emf;
+    private final EntityManager em;
+
+    private TestPersistence(boolean secondLevelCache) {
+        Properties properties = unitProperties();
+        properties.put("jakarta.persistence.jdbc.driver", "org.h2.Driver");
+        properties.put("jakarta.persistence.jdbc.url", "jdbc:h2:mem:test" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1");
+        properties.put("jakarta.persistence.jdbc.user", "sa");
+        properties.put("jakarta.persistence.jdbc.password", "");
+        properties.put("hibernate.show_sql", "false");
+        properties.put("hibernate.format_sql", "false");
+        if (!secondLevelCache) {
+            properties.put("hibernate.cache.use_second_level_cache", "false");
+            properties.put("hibernate.cache.use_query_cache", "false");
+        }
+        emf = new HibernatePersistenceProvider().createContainerEntityManagerFactory(
+                new UnitInfo(properties, secondLevelCache ? SharedCacheMode.ENABLE_SELECTIVE : SharedCacheMode.NONE), Map.of());
+        emf.getCache().evictAll();
+        em = emf.createEntityManager();
+    }
+
+    public static TestPersistence open() {
+        return new TestPersistence(true);
+    }
+
+    public static TestPersistence withoutSecondLevelCache() {
+        return new TestPersistence(false);
+    }
+
+    public EntityManager em() {
+        return em;
+    }
+
+    public Statistics statistics() {
+        return emf.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /* Репозиторий с этим EntityManager в поле @PersistenceContext */
+    public <T> T repository(Class<T> type) {
+        try {
+            T repository = type.getDeclaredConstructor().newInstance();
+            for (Field field : type.getDeclaredFields()) {
+                if (field.isAnnotationPresent(PersistenceContext.class)) {
+                    field.setAccessible(true);
+                    field.set(repository, em);
+                }
+            }
+            return repository;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create " + type.getName(), e);
+        }
+    }
+
+    public void inTransaction(Runnable work) {
+        fromTransaction(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public <R> R fromTransaction(Supplier<R> work) {
+        em.getTransaction().begin();
+        try {
+            R result = work.get();
+            em.getTransaction().commit();
+            return result;
+        } finally {
+            if (em.getTransaction().isActive()) em.getTransaction().rollback();
+        }
+    }
+
+    /*
+     * Количество подготовленных JDBC-запросов, выполненных work на пустом persistence context.
+     * Второй уровень кэша не очищается: при холодном замере его нужно очистить до вызова.
+     */
+    public long statements(Runnable work) {
+        em.clear();
+        Statistics statistics = statistics();
+        statistics.clear();
+        work.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    /* Свойства единицы ProductPU из persistence.xml приложения */
+    private static Properties unitProperties() {
+        try (InputStream in = TestPersistence.class.getResourceAsStream("/META-INF/persistence.xml")) {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            NodeList units = factory.newDocumentBuilder().parse(in).getElementsByTagNameNS("*", "persistence-unit");
+            for (int u = 0; u < units.getLength(); u++) {
+                Element unit = (Element) units.item(u);
+                if (!UNIT.equals(unit.getAttribute("name"))) continue;
+                Properties properties = new Properties();
+                NodeList list = unit.getElementsByTagNameNS("*", "property");
+                for (int i = 0; i < list.getLength(); i++) {
+                    Element property = (Element) list.item(i);
+                    properties.put(property.getAttribute("name"), property.getAttribute("value"));
+                }
+                return properties;
+            }
+            throw new IllegalStateException("Persistence unit " + UNIT + " is not defined");
+        } catch (IOException | ParserConfigurationException | SAXException e) {
+            throw new IllegalStateException("Cannot read persistence.xml", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        em.close();
+        emf.close();
+    }
+
+    /*
+     * Описание единицы для HibernatePersistenceProvider: Hibernate 6.2 не читает persistence.xml версии 3.2,
+     * поэтому свойства берутся из него разбором выше, а транзакции - локальные.
+     */
+    private static final class UnitInfo implements PersistenceUnitInfo {
+
+        private final Properties properties;
+        private final SharedCacheMode sharedCacheMode;
+
+        UnitInfo(Properties properties, SharedCacheMode sharedCacheMode) {
+            this.properties = properties;
+            this.sharedCacheMode = sharedCacheMode;
+        }
+
+        @Override
+        public String getPersistenceUnitName() {
+            return UNIT;
+        }
+
+        @Override
+        public String getPersistenceProviderClassName() {
+            return HibernatePersistenceProvider.class.getName();
+        }
+
+        @Override
+        public String getScopeAnnotationName() {
+            return null;
+        }
+
+        @Override
+        public List<String> getQualifierAnnotationNames() {
+            return List.of();
+        }
+
+        @Override
+        public PersistenceUnitTransactionType getTransactionType() {
+            return PersistenceUnitTransactionType.RESOURCE_LOCAL;
+        }
+
+        @Override
+        public DataSource getJtaDataSource() {
+            return null;
+        }
+
+        @Override
+        public DataSource getNonJtaDataSource() {
+            return null;
+        }
+
+        @Override
+        public List<String> getMappingFileNames() {
+            return List.of();
+        }
+
+        @Override
+        public List<URL> getJarFileUrls() {
+            return List.of();
+        }
+
+        @Override
+        public URL getPersistenceUnitRootUrl() {
+            return null;
+        }
+
+        @Override
+        public List<String> getManagedClassNames() {
+            return ENTITIES.stream().map(Class::getName).collect(Collectors.toList());
+        }
+
+        @Override
+        public boolean excludeUnlistedClasses() {
+            return true;
+        }
+
+        @Override
+        public SharedCacheMode getSharedCacheMode() {
+            return sharedCacheMode;
+        }
+
+        @Override
+        public ValidationMode getValidationMode() {
+            return ValidationMode.NONE;
+        }
+
+        @Override
+        public Properties getProperties() {
+            return properties;
+        }
+
+        @Override
+        public String getPersistenceXMLSchemaVersion() {
+            return "3.2";
+        }
+
+        @Override
+        public ClassLoader getClassLoader() {
+            return TestPersistence.class.getClassLoader();
+        }
+
+        @Override
+        public void addTransformer(ClassTransformer transformer) {
+        }
+
+        @Override
+        public ClassLoader getNewTempClassLoader() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.productsystem.backend.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LookupCacheTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toNanos(1);
+
+    @Test
+    void invalidateIdRemovesEveryKeyOfThatIdOnly() {
+        LookupCache<String, Long> cache = new LookupCache<>(100, HOUR);
+        cache.put("a", 1L);
+        cache.put("b", 1L);
+        cache.put("c", 2L);
+
+        cache.invalidateId(1L);
+
+        assertNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(2L, cache.get("c"));
+        assertEquals(1, cache.size());
+        assertEquals(1L, cache.stats().get("invalidations"));
+    }
+
+    @Test
+    void reassignedKeyIsNotInvalidatedByItsOldId() {
+        LookupCache<String, Long> cache = new LookupCache<>(100, HOUR);
+        cache.put("a", 1L);
+        cache.put("a", 2L);
+
+        cache.invalidateId(1L);
+
+        assertEquals(2L, cache.get("a"));
+        assertEquals(0L, cache.stats().get("invalidations"));
+    }
+
+    @Test
+    void lruEvictionUnlinksEvictedKey() {
+        LookupCache<String, Long> cache = new LookupCache<>(2, HOUR);
+        cache.put("a", 1L);
+        cache.put("b", 2L);
+        cache.get("a");
+        cache.put("c", 3L);
+
+        assertNull(cache.get("b"));
+        assertEquals(1L, cache.get("a"));
+        assertEquals(1L, cache.stats().get("evictions"));
+
+        // a только что прочитан, поэтому повторное добавление b вытесняет c; id 3 больше не должен находиться
+        cache.put("b", 2L);
+        cache.invalidateId(3L);
+        assertEquals(0L, cache.stats().get("invalidations"));
+        cache.invalidateId(2L);
+        assertNull(cache.get("b"));
+        assertEquals(1L, cache.get("a"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void expiredEntryIsMissAndUnlinked() throws InterruptedException {
+        LookupCache<String, Long> cache = new LookupCache<>(100, 1);
+        cache.put("a", 1L);
+        Thread.sleep(1);
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+        cache.invalidateId(1L);
+        assertEquals(0L, cache.stats().get("invalidations"));
+    }
+
+    @Test
+    void removeStaleUnlinksKey() {
+        LookupCache<String, Long> cache = new LookupCache<>(100, HOUR);
+        cache.put("a", 1L);
+        cache.removeStale("a");
+
+        cache.invalidateId(1L);
+
+        assertEquals(0, cache.size());
+        assertEquals(1L, cache.stats().get("stale"));
+        assertEquals(0L, cache.stats().get("invalidations"));
+    }
+}
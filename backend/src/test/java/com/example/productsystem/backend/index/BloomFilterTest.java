@@ -0,0 +1,37 @@
+package com.example.productsystem.backend.index;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    private static final int KEYS = 20000;
+
+    @Test
+    void addedKeysAreAlwaysFound() {
+        BloomFilter filter = new BloomFilter(KEYS);
+        for (int i = 0; i < KEYS; i++) filter.add("PN-" + i);
+
+        for (int i = 0; i < KEYS; i++) assertTrue(filter.mightContain("PN-" + i), "PN-" + i);
+    }
+
+    @Test
+    void falsePositiveRateStaysNearOnePercentAtCapacity() {
+        BloomFilter filter = new BloomFilter(KEYS);
+        for (int i = 0; i < KEYS; i++) filter.add("PN-" + i);
+
+        int probes = 200000;
+        int falsePositives = 0;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("absent-" + i)) falsePositives++;
+        }
+        double rate = (double) falsePositives / probes;
+        assertTrue(rate < 0.02, "false positive rate " + rate);
+    }
+
+    @Test
+    void smallCapacityIsRoundedUp() {
+        assertTrue(new BloomFilter(10).capacity() >= 1024);
+    }
+}
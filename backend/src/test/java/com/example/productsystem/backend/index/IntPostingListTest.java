@@ -0,0 +1,51 @@
+package com.example.productsystem.backend.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/* Сверка IntPostingList с TreeSet: добавление в конец и вставка в середину дают один и тот же порядок */
+class IntPostingListTest {
+
+    @Test
+    void matchesTreeSetAfterRandomAddsAndRemoves() {
+        Random random = new Random(17);
+        IntPostingList list = new IntPostingList();
+        TreeSet<Integer> model = new TreeSet<>();
+
+        for (int step = 0; step < 20000; step++) {
+            int id = random.nextInt(4) == 0 ? random.nextInt(2000) : 2000 + step;
+            if (random.nextInt(4) == 0) {
+                assertEquals(model.remove(id), list.remove(id));
+            } else {
+                assertEquals(model.add(id), list.add(id));
+            }
+        }
+
+        assertEquals(model.size(), list.size());
+        assertArrayEquals(model.stream().mapToInt(Integer::intValue).toArray(), list.toArray());
+        for (int i = 0; i < list.size(); i++) assertTrue(list.contains(list.get(i)));
+        for (int id = 0; id < 2000; id++) assertEquals(model.contains(id), list.contains(id));
+    }
+
+    @Test
+    void duplicatesAndMissingIdsAreRejected() {
+        IntPostingList list = new IntPostingList();
+        assertTrue(list.isEmpty());
+        assertTrue(list.add(5));
+        assertTrue(list.add(1));
+        assertFalse(list.add(5));
+        assertFalse(list.remove(3));
+
+        assertArrayEquals(new int[]{1, 5}, list.toArray());
+        assertTrue(list.remove(1));
+        assertTrue(list.remove(5));
+        assertTrue(list.isEmpty());
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.productsystem.backend.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/* Сверка KdTree3 с полным перебором на случайных точках, в том числе с совпадающими координатами и мёртвыми строками */
+class KdTree3Test {
+
+    private static final int N = 3000;
+
+    @Test
+    void withinMatchesBruteForce() {
+        Random random = new Random(42);
+        Points points = Points.random(random, N, 50);
+        KdTree3 tree = points.tree();
+
+        for (int i = 0; i < 200; i++) {
+            double[] min = new double[3];
+            double[] max = new double[3];
+            randomBox(random, min, max, 50);
+            assertEquals(points.within(min, max, null), within(tree, min, max));
+        }
+    }
+
+    @Test
+    void nearestMatchesBruteForce() {
+        Random random = new Random(7);
+        Points points = Points.random(random, N, 50);
+        KdTree3 tree = points.tree();
+
+        for (int k : new int[]{1, 5, 32}) {
+            for (int i = 0; i < 200; i++) {
+                double[] q = {random.nextDouble() * 60 - 5, random.nextDouble() * 60 - 5, random.nextDouble() * 60 - 5};
+                assertArrayEquals(points.nearest(q, k, null), nearest(tree, q, k));
+            }
+        }
+    }
+
+    @Test
+    void deadPointsAreSkipped() {
+        Random random = new Random(11);
+        Points points = Points.random(random, N, 50);
+        KdTree3 tree = points.tree();
+        Set<Long> killed = new HashSet<>();
+        for (int pos = 0; pos < tree.size(); pos++) {
+            if (random.nextInt(4) == 0) {
+                tree.kill(pos);
+                killed.add(tree.id(pos));
+            }
+        }
+
+        for (int i = 0; i < 200; i++) {
+            double[] min = new double[3];
+            double[] max = new double[3];
+            randomBox(random, min, max, 50);
+            assertEquals(points.within(min, max, killed), within(tree, min, max));
+
+            double[] q = {random.nextDouble() * 50, random.nextDouble() * 50, random.nextDouble() * 50};
+            assertArrayEquals(points.nearest(q, 10, killed), nearest(tree, q, 10));
+        }
+    }
+
+    @Test
+    void emptyAndTinyTrees() {
+        KdTree3 empty = new KdTree3(new long[0], new double[0], new double[0], new double[0], 0);
+        assertEquals(Set.of(), within(empty, new double[]{0, 0, 0}, new double[]{1, 1, 1}));
+        assertArrayEquals(new double[0], nearest(empty, new double[]{0, 0, 0}, 3));
+
+        KdTree3 one = new KdTree3(new long[]{9}, new double[]{1}, new double[]{2}, new double[]{3}, 1);
+        assertEquals(Set.of(9L), within(one, new double[]{1, 2, 3}, new double[]{1, 2, 3}));
+        assertArrayEquals(new double[]{0}, nearest(one, new double[]{1, 2, 3}, 3));
+    }
+
+    static void randomBox(Random random, double[] min, double[] max, int range) {
+        for (int a = 0; a < 3; a++) {
+            double u = random.nextInt(range + 10) - 5;
+            double v = random.nextInt(range + 10) - 5;
+            min[a] = Math.min(u, v);
+            max[a] = Math.max(u, v);
+        }
+    }
+
+    private static Set<Long> within(KdTree3 tree, double[] min, double[] max) {
+        Set<Long> found = new HashSet<>();
+        tree.within(min, max, (pos, d) -> assertEquals(true, found.add(tree.id(pos))));
+        return found;
+    }
+
+    /* Квадраты расстояний k ближайших: при равных расстояниях набор id неоднозначен, а расстояния - нет */
+    private static double[] nearest(KdTree3 tree, double[] q, int k) {
+        KdTree3.NearestHeap heap = new KdTree3.NearestHeap(k);
+        tree.nearest(q, heap);
+        double[] distances = new double[heap.size()];
+        heap.drain(distances);
+        return distances;
+    }
+
+    /* Копия точек до построения дерева: дерево переупорядочивает переданные ему массивы */
+    static final class Points {
+        final long[] ids;
+        final double[][] coords;
+
+        Points(long[] ids, double[][] coords) {
+            this.ids = ids;
+            this.coords = coords;
+        }
+
+        /* Целые координаты в [0, range) дают много совпадений по осям */
+        static Points random(Random random, int n, int range) {
+            long[] ids = new long[n];
+            double[][] coords = new double[3][n];
+            for (int i = 0; i < n; i++) {
+                ids[i] = i + 1;
+                for (int a = 0; a < 3; a++) coords[a][i] = random.nextInt(range);
+            }
+            return new Points(ids, coords);
+        }
+
+        KdTree3 tree() {
+            return new KdTree3(ids.clone(), coords[0].clone(), coords[1].clone(), coords[2].clone(), ids.length);
+        }
+
+        Set<Long> within(double[] min, double[] max, Set<Long> excluded) {
+            Set<Long> found = new HashSet<>();
+            for (int i = 0; i < ids.length; i++) {
+                if (excluded != null && excluded.contains(ids[i])) continue;
+                boolean inside = true;
+                for (int a = 0; a < 3; a++) inside &= coords[a][i] >= min[a] && coords[a][i] <= max[a];
+                if (inside) found.add(ids[i]);
+            }
+            return found;
+        }
+
+        double[] nearest(double[] q, int k, Set<Long> excluded) {
+            double[] all = new double[ids.length];
+            int n = 0;
+            for (int i = 0; i < ids.length; i++) {
+                if (excluded != null && excluded.contains(ids[i])) continue;
+                double dx = coords[0][i] - q[0];
+                double dy = coords[1][i] - q[1];
+                double dz = coords[2][i] - q[2];
+                all[n++] = dx * dx + dy * dy + dz * dz;
+            }
+            double[] sorted = Arrays.copyOf(all, n);
+            Arrays.sort(sorted);
+            return Arrays.copyOf(sorted, Math.min(k, n));
+        }
+    }
+}
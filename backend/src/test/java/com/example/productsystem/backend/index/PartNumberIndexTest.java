@@ -0,0 +1,51 @@
+package com.example.productsystem.backend.index;
+
+import com.example.productsystem.backend.event.ChangeType;
+import com.example.productsystem.backend.event.ProductChangeEvent;
+import com.example.productsystem.common.ProductDTO;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/* События после коммита разных транзакций могут прийти не в порядке коммитов */
+class PartNumberIndexTest {
+
+    private final PartNumberIndex index = new PartNumberIndex();
+
+    @Test
+    void freedPartNumberTakenByAnotherProductSurvivesLateEvent() {
+        change(ChangeType.CREATED, 1L, "X");
+        // B занял X после того, как A сменил его на Y, но событие B пришло первым
+        change(ChangeType.UPDATED, 2L, "X");
+        change(ChangeType.UPDATED, 1L, "Y");
+
+        assertEquals(2L, index.idOf("X"));
+        assertEquals(1L, index.idOf("Y"));
+    }
+
+    @Test
+    void deleteOfFormerOwnerKeepsNewOwner() {
+        change(ChangeType.CREATED, 1L, "X");
+        change(ChangeType.CREATED, 2L, "X");
+        index.onProductChange(new ProductChangeEvent(ChangeType.DELETED, 1L, null));
+
+        assertEquals(2L, index.idOf("X"));
+    }
+
+    @Test
+    void updateWithSamePartNumberKeepsKey() {
+        change(ChangeType.CREATED, 1L, "X");
+        change(ChangeType.UPDATED, 1L, "X");
+        change(ChangeType.UPDATED, 1L, "Z");
+
+        assertEquals(1L, index.idOf("Z"));
+        assertNull(index.idOf("X"));
+    }
+
+    private void change(ChangeType type, Long id, String partNumber) {
+        ProductDTO p = new ProductDTO();
+        p.setPartNumber(partNumber);
+        index.onProductChange(new ProductChangeEvent(type, id, p));
+    }
+}
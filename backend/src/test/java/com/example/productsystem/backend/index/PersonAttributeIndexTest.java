@@ -0,0 +1,96 @@
+package com.example.productsystem.backend.index;
+
+import com.example.productsystem.backend.event.ChangeType;
+import com.example.productsystem.backend.event.PersonChangeEvent;
+import com.example.productsystem.common.Color;
+import com.example.productsystem.common.Country;
+import com.example.productsystem.common.PersonDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/*
+ * Сверка PersonAttributeIndex с перебором модели по всем комбинациям фильтров.
+ * Порядок выдачи - порядок первого появления id, который сохраняется при изменениях и уплотнении.
+ */
+class PersonAttributeIndexTest {
+
+    private static final Color[] COLORS = Color.values();
+    private static final Country[] COUNTRIES = Country.values();
+
+    private final Random random = new Random(99);
+    private final PersonAttributeIndex index = new PersonAttributeIndex();
+    private final Map<Long, PersonDTO> model = new LinkedHashMap<>();
+
+    @Test
+    void matchesModelAcrossUpdatesDeletesAndCompaction() {
+        for (long id = 1; id <= 5000; id++) put(id);
+        check();
+
+        // Изменение существующего id не меняет его место в порядке выдачи
+        for (int i = 0; i < 2000; i++) put(1 + random.nextInt(5000));
+        check();
+
+        // Удалённых больше, чем живых: индекс уплотняется
+        for (long id = 1; id <= 5000; id++) {
+            if (id % 5 != 0) delete(id);
+        }
+        check();
+        for (long id = 6000; id < 6500; id++) put(id);
+        check();
+    }
+
+    private void put(long id) {
+        PersonDTO p = new PersonDTO();
+        p.setEyeColor(random.nextInt(8) == 0 ? null : COLORS[random.nextInt(COLORS.length)]);
+        p.setHairColor(COLORS[random.nextInt(COLORS.length)]);
+        p.setNationality(random.nextInt(8) == 0 ? null : COUNTRIES[random.nextInt(COUNTRIES.length)]);
+        index.onPersonChange(new PersonChangeEvent(model.containsKey(id) ? ChangeType.UPDATED : ChangeType.CREATED, id, p));
+        model.put(id, p);
+    }
+
+    private void delete(long id) {
+        index.onPersonChange(new PersonChangeEvent(ChangeType.DELETED, id, null));
+        model.remove(id);
+    }
+
+    private void check() {
+        for (Color eye : withNull(COLORS)) {
+            for (Color hair : withNull(COLORS)) {
+                for (Country nationality : withNull(COUNTRIES)) {
+                    long[] expected = model.entrySet().stream()
+                            .filter(e -> matches(e.getValue(), eye, hair, nationality))
+                            .mapToLong(Map.Entry::getKey)
+                            .toArray();
+                    assertEquals(expected.length, index.count(eye, hair, nationality));
+                    assertArrayEquals(expected, index.find(eye, hair, nationality, 0, expected.length + 1));
+
+                    int offset = expected.length / 3;
+                    assertArrayEquals(Arrays.copyOfRange(expected, offset, Math.min(expected.length, offset + 7)),
+                            index.find(eye, hair, nationality, offset, 7));
+                }
+            }
+        }
+    }
+
+    private static boolean matches(PersonDTO p, Color eye, Color hair, Country nationality) {
+        return (eye == null || eye == p.getEyeColor())
+                && (hair == null || hair == p.getHairColor())
+                && (nationality == null || nationality == p.getNationality());
+    }
+
+    /* Значения перечисления и null (фильтр не задан) */
+    private static <T> List<T> withNull(T[] values) {
+        List<T> result = new ArrayList<>(Arrays.asList(values));
+        result.add(null);
+        return result;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.productsystem.backend.index;
+
+import com.example.productsystem.backend.event.PersonLocationsChangedEvent;
+import com.example.productsystem.common.LocationDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/*
+ * Сверка PersonLocationIndex с полным перебором по модели id -> точка.
+ * Изменения идут событиями после коммита: небольшие пакеты остаются в буфере поверх мёртвых строк дерева,
+ * пакеты больше REBUILD_MIN вызывают перестройку дерева.
+ */
+class PersonLocationIndexTest {
+
+    private final Random random = new Random(2024);
+    private final PersonLocationIndex index = new PersonLocationIndex();
+    private final Map<Long, double[]> model = new HashMap<>();
+
+    @Test
+    void matchesBruteForceAcrossBufferedChangesAndCompaction() {
+        // 6000 новых точек: буфер больше REBUILD_MIN, дерево строится
+        apply(changes(1, 6000, 0));
+        check();
+
+        // Перемещения и удаления остаются в буфере, старые позиции в дереве мёртвые
+        apply(changes(1, 6000, 300));
+        check();
+        apply(removals(1, 6000, 200));
+        check();
+
+        // Следующий крупный пакет снова перестраивает дерево вместе с накопленным буфером
+        apply(changes(1, 9000, 4500));
+        check();
+        apply(removals(1, 9000, 100));
+        check();
+    }
+
+    private void apply(Map<Long, LocationDTO> changes) {
+        index.onLocationsChanged(new PersonLocationsChangedEvent(changes));
+        changes.forEach((id, l) -> {
+            if (l == null) {
+                model.remove(id);
+            } else {
+                model.put(id, new double[]{l.getX(), l.getY(), l.getZ()});
+            }
+        });
+    }
+
+    /* count случайных id из [from, to] с новыми точками; при count == 0 - все id диапазона */
+    private Map<Long, LocationDTO> changes(long from, long to, int count) {
+        Map<Long, LocationDTO> changes = new HashMap<>();
+        if (count == 0) {
+            for (long id = from; id <= to; id++) changes.put(id, location());
+        } else {
+            while (changes.size() < count) changes.put(from + random.nextInt((int) (to - from + 1)), location());
+        }
+        return changes;
+    }
+
+    private Map<Long, LocationDTO> removals(long from, long to, int count) {
+        Map<Long, LocationDTO> changes = new HashMap<>();
+        while (changes.size() < count) changes.put(from + random.nextInt((int) (to - from + 1)), null);
+        return changes;
+    }
+
+    private LocationDTO location() {
+        return new LocationDTO(random.nextInt(100), random.nextInt(100), random.nextInt(100), null);
+    }
+
+    private void check() {
+        for (int i = 0; i < 100; i++) {
+            double[] min = new double[3];
+            double[] max = new double[3];
+            KdTree3Test.randomBox(random, min, max, 100);
+            long[] total = new long[1];
+            long[] found = index.within(min, max, model.size(), total);
+            Set<Long> expected = bruteWithin(min, max);
+            assertEquals(expected.size(), found.length);
+            assertEquals(expected, toSet(found));
+            assertEquals(expected.size(), total[0]);
+
+            long[] limited = index.within(min, max, 5, total);
+            assertEquals(Math.min(5, expected.size()), limited.length);
+            assertEquals(true, expected.containsAll(toSet(limited)));
+            assertEquals(expected.size(), total[0]);
+
+            double[] q = {random.nextInt(110) - 5, random.nextInt(110) - 5, random.nextInt(110) - 5};
+            PersonLocationIndex.Hit[] hits = index.nearest(q[0], q[1], q[2], 20);
+            double[] distances = new double[hits.length];
+            for (int h = 0; h < hits.length; h++) {
+                distances[h] = hits[h].getDistance();
+                double[] p = model.get(hits[h].getId());
+                assertEquals(Math.sqrt(distanceSquared(p, q)), hits[h].getDistance(), 1e-9);
+            }
+            assertArrayEquals(bruteNearest(q, 20), distances, 1e-9);
+        }
+    }
+
+    private Set<Long> bruteWithin(double[] min, double[] max) {
+        Set<Long> found = new HashSet<>();
+        model.forEach((id, p) -> {
+            boolean inside = true;
+            for (int a = 0; a < 3; a++) inside &= p[a] >= min[a] && p[a] <= max[a];
+            if (inside) found.add(id);
+        });
+        return found;
+    }
+
+    private double[] bruteNearest(double[] q, int k) {
+        double[] all = model.values().stream().mapToDouble(p -> Math.sqrt(distanceSquared(p, q))).sorted().toArray();
+        return Arrays.copyOf(all, Math.min(k, all.length));
+    }
+
+    private static double distanceSquared(double[] p, double[] q) {
+        double dx = p[0] - q[0];
+        double dy = p[1] - q[1];
+        double dz = p[2] - q[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static Set<Long> toSet(long[] ids) {
+        Set<Long> set = new HashSet<>();
+        for (long id : ids) set.add(id);
+        return set;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.productsystem.backend.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/* Сверка SortedPairs с отсортированным списком пар после случайных вставок и удалений */
+class SortedPairsTest {
+
+    private static final Comparator<long[]> ORDER =
+            Comparator.<long[]>comparingLong(p -> p[0]).thenComparingLong(p -> p[1]);
+
+    @Test
+    void matchesSortedListAfterRandomInsertsAndRemoves() {
+        Random random = new Random(5);
+        SortedPairs pairs = new SortedPairs();
+        List<long[]> model = new ArrayList<>();
+
+        // Больше начальной ёмкости 1024, малый разброс ключей даёт много равных ключей
+        for (int step = 0; step < 5000; step++) {
+            if (model.isEmpty() || random.nextInt(3) > 0) {
+                long key = random.nextInt(200) - 100;
+                int id = random.nextInt(100000);
+                pairs.insert(key, id);
+                model.add(new long[]{key, id});
+            } else {
+                long[] p = model.remove(random.nextInt(model.size()));
+                assertTrue(pairs.remove(p[0], (int) p[1]));
+            }
+        }
+        model.sort(ORDER);
+
+        assertEquals(model.size(), pairs.size());
+        for (int i = 0; i < model.size(); i++) {
+            assertEquals(model.get(i)[0], pairs.key(i));
+            assertEquals(model.get(i)[1], pairs.id(i));
+        }
+        for (long key = -105; key <= 105; key++) {
+            assertEquals(countBelow(model, key), pairs.lowerBound(key));
+            assertEquals(countBelow(model, key + 1), pairs.upperBound(key));
+        }
+    }
+
+    @Test
+    void removeOfMissingPairIsNoOp() {
+        SortedPairs pairs = new SortedPairs();
+        pairs.insert(10, 1);
+        pairs.insert(10, 3);
+
+        assertFalse(pairs.remove(10, 2));
+        assertFalse(pairs.remove(11, 1));
+        assertFalse(pairs.remove(Long.MAX_VALUE, 1));
+        assertEquals(2, pairs.size());
+    }
+
+    @Test
+    void boundsAtExtremeKeys() {
+        SortedPairs pairs = new SortedPairs();
+        pairs.insert(Long.MIN_VALUE, 1);
+        pairs.insert(0, 2);
+        pairs.insert(Long.MAX_VALUE, 3);
+
+        assertEquals(0, pairs.lowerBound(Long.MIN_VALUE));
+        assertEquals(1, pairs.upperBound(Long.MIN_VALUE));
+        assertEquals(2, pairs.lowerBound(Long.MAX_VALUE));
+        assertEquals(3, pairs.upperBound(Long.MAX_VALUE));
+    }
+
+    @Test
+    void idsForwardAndReverse() {
+        SortedPairs pairs = new SortedPairs();
+        for (int id = 1; id <= 6; id++) pairs.insert(id * 10L, id);
+
+        assertArrayEquals(new int[]{2, 3, 4}, pairs.ids(1, 4, false));
+        assertArrayEquals(new int[]{5, 4, 3}, pairs.ids(1, 4, true));
+        assertArrayEquals(new int[]{5, 6}, pairs.ids(4, 100, false));
+        assertArrayEquals(new int[]{6}, pairs.ids(-3, 1, true));
+        assertArrayEquals(new int[0], pairs.ids(4, 4, false));
+
+        pairs.clear();
+        assertEquals(0, pairs.size());
+        assertArrayEquals(new int[0], pairs.ids(0, 10, false));
+    }
+
+    private static int countBelow(List<long[]> model, long key) {
+        int n = 0;
+        for (long[] p : model) if (p[0] < key) n++;
+        return n;
+    }
+}
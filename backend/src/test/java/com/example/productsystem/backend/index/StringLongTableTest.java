@@ -0,0 +1,87 @@
+package com.example.productsystem.backend.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/* Сверка StringLongTable с HashMap: удаление со сдвигом не должно терять записи чужих цепочек */
+class StringLongTableTest {
+
+    @Test
+    void matchesHashMapAfterRandomPutsAndRemoves() {
+        Random random = new Random(3);
+        StringLongTable table = new StringLongTable();
+        Map<String, Long> model = new HashMap<>();
+
+        for (int step = 0; step < 100000; step++) {
+            String key = "k" + random.nextInt(3000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(model.remove(key) != null, table.remove(key));
+            } else {
+                long value = random.nextLong();
+                model.put(key, value);
+                table.put(key, value);
+            }
+            if (step % 10000 == 0) assertMatches(model, table);
+        }
+        assertMatches(model, table);
+    }
+
+    @Test
+    void removingEverythingLeavesEmptyTable() {
+        StringLongTable table = new StringLongTable();
+        for (int i = 0; i < 1000; i++) table.put("key" + i, i);
+        for (int i = 999; i >= 0; i -= 2) assertTrue(table.remove("key" + i));
+        for (int i = 0; i < 1000; i += 2) assertEquals(i, table.get("key" + i, -1));
+        for (int i = 0; i < 1000; i += 2) assertTrue(table.remove("key" + i));
+
+        assertEquals(0, table.size());
+        assertFalse(table.containsKey("key0"));
+        assertFalse(table.remove("key0"));
+        assertEquals(-1, table.get("key0", -1));
+    }
+
+    @Test
+    void conditionalRemoveOnlyRemovesExpectedValue() {
+        StringLongTable table = new StringLongTable();
+        table.put("a", 1);
+
+        assertFalse(table.remove("a", 2));
+        assertEquals(1, table.get("a", -1));
+        assertTrue(table.remove("a", 1));
+        assertFalse(table.containsKey("a"));
+        assertFalse(table.remove("a", 1));
+    }
+
+    @Test
+    void clearDropsAllKeys() {
+        StringLongTable table = new StringLongTable();
+        table.put("a", 1);
+        table.put("b", 2);
+        table.clear();
+
+        assertEquals(0, table.size());
+        assertEquals(0, table.keys().length);
+        table.put("a", 3);
+        assertEquals(3, table.get("a", -1));
+    }
+
+    private static void assertMatches(Map<String, Long> model, StringLongTable table) {
+        assertEquals(model.size(), table.size());
+        model.forEach((k, v) -> assertEquals(v.longValue(), table.get(k, Long.MIN_VALUE), k));
+        Set<String> keys = new HashSet<>();
+        table.forEach((k, v) -> {
+            assertTrue(keys.add(k), k);
+            assertEquals(model.get(k), v, k);
+        });
+        assertEquals(model.keySet(), Set.of(table.keys()));
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.productsystem.backend.repository;
+
+import com.example.productsystem.backend.TestData;
+import com.example.productsystem.backend.TestPersistence;
+import com.example.productsystem.backend.entity.Organization;
+import com.example.productsystem.backend.mapper.OrganizationMapper;
+import com.example.productsystem.common.OrganizationDTO;
+import com.example.productsystem.common.OrganizationType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/*
+ * Количество SQL-запросов на страницу организаций вместе с отображением в OrganizationDTO
+ * (два адреса, у каждого town). Второй уровень кэша выключен, чтобы считались все обращения к БД.
+ */
+class OrganizationRepositoryStatementsTest {
+
+    private static final int ORGANIZATIONS = 100;
+
+    private static TestPersistence db;
+    private static OrganizationRepository repo;
+
+    @BeforeAll
+    static void seed() {
+        db = TestPersistence.withoutSecondLevelCache();
+        repo = db.repository(OrganizationRepository.class);
+        db.inTransaction(() -> {
+            for (int i = 1; i <= ORGANIZATIONS; i++) repo.create(TestData.organization(i));
+        });
+    }
+
+    @AfterAll
+    static void close() {
+        db.close();
+    }
+
+    @Test
+    void pagesLoadAddressGraphInOneStatement() {
+        assertStatements(1, 10, () -> repo.list(0, 10, "name", true));
+        assertStatements(1, 50, () -> repo.list(1, 50, "name", true));
+        assertStatements(1, 10, () -> repo.sortByTurnover(0, 10, false));
+        assertStatements(1, 50, () -> repo.sortByTurnover(0, 50, false));
+        assertStatements(1, 10, () -> repo.filterByEmployeeRange(1, 100, 0, 10));
+        assertStatements(1, 50, () -> repo.filterByEmployeeRange(1, 100, 0, 50));
+    }
+
+    @Test
+    void filtersLoadAddressGraphInOneStatement() {
+        assertStatements(1, ORGANIZATIONS / OrganizationType.values().length,
+                () -> repo.findByType(OrganizationType.COMMERCIAL));
+        assertStatements(1, ORGANIZATIONS / 10 * 3, () -> repo.findByRatingGreaterThan(7));
+        assertStatements(1, ORGANIZATIONS, () -> repo.findByRatingGreaterThan(0));
+        List<Integer> ids = ids(1, 40);
+        assertStatements(1, 40, () -> repo.findByIds(ids));
+    }
+
+    /*
+     * Без графа адреса догружаются IN-пакетами @BatchSize(50) вместе с town: запрос страницы
+     * и один пакет на каждые 25 организаций (50 адресов), а не запросы на каждую строку.
+     */
+    @Test
+    void batchFetchWithoutGraphCostsOneStatementPerBatch() {
+        for (int size : new int[]{1, 10, 20, 25}) {
+            assertEquals(2, statements(size, () -> page(size)), "page size " + size);
+        }
+        assertEquals(3, statements(50, () -> page(50)));
+        assertEquals(5, statements(ORGANIZATIONS, () -> page(ORGANIZATIONS)));
+    }
+
+    private static List<Organization> page(int size) {
+        return db.em().createQuery("SELECT o FROM Organization o ORDER BY o.id", Organization.class)
+                .setMaxResults(size)
+                .getResultList();
+    }
+
+    private static List<Integer> ids(int from, int to) {
+        List<Integer> all = db.em().createQuery("SELECT o.id FROM Organization o ORDER BY o.id", Integer.class)
+                .getResultList();
+        return IntStream.rangeClosed(from, to).mapToObj(i -> all.get(i - 1)).collect(Collectors.toList());
+    }
+
+    private static void assertStatements(long expected, int rows, Supplier<List<Organization>> query) {
+        assertEquals(expected, statements(rows, query));
+    }
+
+    private static long statements(int rows, Supplier<List<Organization>> query) {
+        int[] mapped = new int[1];
+        long statements = db.statements(() -> {
+            for (Organization o : query.get()) {
+                OrganizationDTO dto = OrganizationMapper.toDTO(o);
+                if (dto.getOfficialAddress().getTown() != null && dto.getPostalAddress().getTown() != null) mapped[0]++;
+            }
+        });
+        assertEquals(rows, mapped[0]);
+        return statements;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.productsystem.backend.repository;
+
+import com.example.productsystem.backend.TestData;
+import com.example.productsystem.backend.TestPersistence;
+import com.example.productsystem.backend.entity.Product;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * Вставка пакета импорта: id берутся из sequence пулами по 50, поэтому Hibernate группирует INSERT
+ * в JDBC-батчи (hibernate.jdbc.batch_size = 50) и число подготовленных запросов растёт с числом батчей, а не строк.
+ */
+class ProductImportStatementsTest {
+
+    private TestPersistence db;
+    private ProductRepository repo;
+
+    @BeforeEach
+    void open() {
+        db = TestPersistence.withoutSecondLevelCache();
+        repo = db.repository(ProductRepository.class);
+    }
+
+    @AfterEach
+    void close() {
+        db.close();
+    }
+
+    @Test
+    void chunkInsertsAreBatched() {
+        long small = insertChunk(0, 50);
+        long large = insertChunk(50, 500);
+
+        // у каждого продукта 9 строк: продукт, координаты, владелец с location, производитель с двумя адресами и town
+        Statistics statistics = db.statistics();
+        assertEquals(500 * 9, statistics.getEntityInsertCount());
+        assertTrue(large <= small * 10, "statements for 500 rows: " + large + ", for 50 rows: " + small);
+        assertTrue(large * 20 < 500 * 9, "statements for 500 rows: " + large);
+    }
+
+    /* Подготовленные запросы на вставку count продуктов в одной транзакции, как ProductService.importChunk */
+    private long insertChunk(int from, int count) {
+        return db.statements(() -> db.inTransaction(() -> {
+            for (int i = from + 1; i <= from + count; i++) {
+                Product p = TestData.product(i, TestData.organization(i), TestData.person(i));
+                repo.create(p);
+            }
+            repo.flush();
+        }));
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.productsystem.backend.repository;
+
+import com.example.productsystem.backend.TestData;
+import com.example.productsystem.backend.TestPersistence;
+import com.example.productsystem.backend.entity.Product;
+import com.example.productsystem.backend.mapper.ProductMapper;
+import com.example.productsystem.common.ProductDTO;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/*
+ * Количество SQL-запросов на страницу продуктов вместе с отображением в ProductDTO.
+ * У каждого продукта свои производитель (два адреса с town) и владелец (с location), поэтому без графа
+ * загрузки каждая строка страницы добавляла бы запросы. Второй уровень кэша выключен, чтобы считались все обращения к БД.
+ */
+class ProductRepositoryStatementsTest {
+
+    private static final int PRODUCTS = 60;
+
+    private static TestPersistence db;
+    private static ProductRepository repo;
+
+    @BeforeAll
+    static void seed() {
+        db = TestPersistence.withoutSecondLevelCache();
+        repo = db.repository(ProductRepository.class);
+        db.inTransaction(() -> {
+            for (int i = 1; i <= PRODUCTS; i++) {
+                repo.create(TestData.product(i, TestData.organization(i), TestData.person(i)));
+            }
+        });
+    }
+
+    @AfterAll
+    static void close() {
+        db.close();
+    }
+
+    @Test
+    void listLoadsDtoGraphInOneStatement() {
+        assertStatements(1, 10, () -> repo.list(0, 10, "name", true));
+        assertStatements(1, 50, () -> repo.list(0, 50, "name", true));
+        assertViewStatements(1, 10, () -> repo.listView(0, 10, "name", true));
+        assertViewStatements(1, 50, () -> repo.listView(0, 50, "name", true));
+    }
+
+    @Test
+    void filterLoadsDtoGraphInOneStatement() {
+        assertStatements(1, 10, () -> repo.filter("product", 1f, 60f, 0, 10));
+        assertStatements(1, 50, () -> repo.filter("product", 1f, 60f, 0, 50));
+        assertViewStatements(1, 10, () -> repo.filterByFieldView("unitOfMeasure", "PCS", 0, 10, null, true));
+        assertViewStatements(1, 50, () -> repo.filterByFieldView("unitOfMeasure", "PCS", 0, 50, null, true));
+    }
+
+    @Test
+    void ratingLoadsDtoGraphInOneStatement() {
+        assertStatements(1, 10, () -> repo.ratingGreaterThan(PRODUCTS - 10));
+        assertStatements(1, 50, () -> repo.ratingGreaterThan(PRODUCTS - 50));
+        assertViewStatements(1, 10, () -> repo.ratingGreaterThanView(PRODUCTS - 10));
+        assertViewStatements(1, 50, () -> repo.ratingGreaterThanView(PRODUCTS - 50));
+    }
+
+    @Test
+    void priceRangeLoadsDtoGraphInOneStatement() {
+        assertStatements(1, 10, () -> repo.priceRange(1f, 10f));
+        assertStatements(1, 50, () -> repo.priceRange(1f, 50f));
+        assertViewStatements(1, 10, () -> repo.priceRangeView(1f, 10f));
+        assertViewStatements(1, 50, () -> repo.priceRangeView(1f, 50f));
+    }
+
+    /* Выборка сущностей и их отображение в ProductDTO, как в ProductService */
+    private static void assertStatements(long expected, int rows, Supplier<List<Product>> query) {
+        int[] mapped = new int[1];
+        long statements = db.statements(() -> {
+            for (Product p : query.get()) {
+                ProductDTO dto = ProductMapper.toDTO(p);
+                if (dto.getManufacturer().getPostalAddress().getTown() != null && dto.getOwner().getLocation() != null) {
+                    mapped[0]++;
+                }
+            }
+        });
+        assertEquals(rows, mapped[0]);
+        assertEquals(expected, statements);
+    }
+
+    private static void assertViewStatements(long expected, int rows, Supplier<List<ProductDTO>> query) {
+        int[] mapped = new int[1];
+        long statements = db.statements(() -> mapped[0] = query.get().size());
+        assertEquals(rows, mapped[0]);
+        assertEquals(expected, statements);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.productsystem.backend.repository;
+
+import com.example.productsystem.backend.TestData;
+import com.example.productsystem.backend.TestPersistence;
+import com.example.productsystem.backend.entity.Organization;
+import com.example.productsystem.backend.entity.Person;
+import com.example.productsystem.common.OrganizationType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * Второй уровень кэша и кэш запросов ProductPU: повторное чтение справочных данных на новом
+ * persistence context не обращается к БД, а изменение таблицы сбрасывает кэш запросов.
+ * Чтения идут в транзакции, как на сервере: READ_WRITE-регионы отдают запись только сессии,
+ * чья транзакция началась после её помещения в кэш.
+ */
+class SecondLevelCacheStatementsTest {
+
+    private TestPersistence db;
+
+    @AfterEach
+    void close() {
+        db.close();
+    }
+
+    @Test
+    void findIsServedFromSecondLevelCache() {
+        db = TestPersistence.open();
+        OrganizationRepository repo = db.repository(OrganizationRepository.class);
+        List<Integer> ids = seedOrganizations(repo);
+
+        for (Integer id : ids) db.statements(() -> db.inTransaction(() -> repo.find(id)));
+        long statements = db.statements(() -> db.inTransaction(() -> ids.forEach(id -> {
+            Organization o = repo.find(id);
+            assertEquals(id, o.getId());
+            assertTrue(o.getOfficialAddress().getTown() != null && o.getPostalAddress().getTown() != null);
+        })));
+
+        assertEquals(0, statements);
+        assertTrue(db.statistics().getCacheRegionStatistics("organizations").getHitCount() >= ids.size());
+    }
+
+    @Test
+    void findGoesToDatabaseWithoutSecondLevelCache() {
+        db = TestPersistence.withoutSecondLevelCache();
+        OrganizationRepository repo = db.repository(OrganizationRepository.class);
+        List<Integer> ids = seedOrganizations(repo);
+
+        for (Integer id : ids) db.statements(() -> db.inTransaction(() -> repo.find(id)));
+        long statements = db.statements(() -> db.inTransaction(() -> ids.forEach(id -> repo.find(id).getPostalAddress().getTown())));
+
+        assertEquals(ids.size(), statements);
+    }
+
+    @Test
+    void cachedQueriesAreInvalidatedByWrites() {
+        db = TestPersistence.open();
+        OrganizationRepository organizations = db.repository(OrganizationRepository.class);
+        PersonRepository persons = db.repository(PersonRepository.class);
+        seedOrganizations(organizations);
+        db.inTransaction(() -> persons.create(TestData.person(1)));
+
+        assertEquals(1, db.statements(() -> db.fromTransaction(() -> organizations.findByType(OrganizationType.GOVERNMENT))));
+        assertEquals(0, db.statements(() -> db.fromTransaction(() -> organizations.findByType(OrganizationType.GOVERNMENT))));
+        assertEquals(1, db.statements(() -> db.fromTransaction(() -> persons.findByPassportID("passport-1"))));
+        assertEquals(0, db.statements(() -> db.fromTransaction(() -> persons.findByPassportID("passport-1"))));
+
+        db.inTransaction(() -> organizations.create(TestData.organization(1000)));
+        db.inTransaction(() -> persons.create(TestData.person(2)));
+
+        assertEquals(1, db.statements(() -> db.fromTransaction(() -> organizations.findByType(OrganizationType.GOVERNMENT))));
+        Person found = db.fromTransaction(() -> persons.findByPassportID("passport-2").orElse(null));
+        assertEquals("Person 2", found.getName());
+    }
+
+    private List<Integer> seedOrganizations(OrganizationRepository repo) {
+        List<Integer> ids = new ArrayList<>();
+        db.inTransaction(() -> {
+            for (int i = 1; i <= 20; i++) ids.add(repo.create(TestData.organization(i)).getId());
+        });
+        return ids;
+    }
+}
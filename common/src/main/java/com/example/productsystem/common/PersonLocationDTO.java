@@ -0,0 +1,31 @@
+package com.example.productsystem.common;
+
+
+public class PersonLocationDTO {
+    private Long personId; //Поле не может быть null
+    private LocationDTO location; //Поле не может быть null
+
+    public PersonLocationDTO() {
+    }
+
+    public PersonLocationDTO(Long personId, LocationDTO location) {
+        this.personId = personId;
+        this.location = location;
+    }
+
+    public Long getPersonId() {
+        return personId;
+    }
+
+    public void setPersonId(Long personId) {
+        this.personId = personId;
+    }
+
+    public LocationDTO getLocation() {
+        return location;
+    }
+
+    public void setLocation(LocationDTO location) {
+        this.location = location;
+    }
+}
@@ -20,6 +20,7 @@ public class ProductDTO {
     private int rating; //Значение поля должно быть больше 0
     private String partNumber; //Значение этого поля должно быть уникальным, Длина строки должна быть не меньше 25, Поле может быть null
     private PersonDTO owner; //Поле может быть null
+    private Long version; //Версия для оптимистической блокировки, генерируется автоматически
 
     public ProductDTO() {
     }
@@ -77,6 +78,10 @@ public class ProductDTO {
         return partNumber;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
     public PersonDTO getOwner() {
         return owner;
     }
@@ -121,6 +126,10 @@ public class ProductDTO {
         this.partNumber = partNumber;
     }
 
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public void setOwner(PersonDTO owner) {
         this.owner = owner;
     }